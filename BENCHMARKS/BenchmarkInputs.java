@@ -0,0 +1,134 @@
+package BENCHMARKS;
+
+/**
+ * Source texts for the benchmarks, generated in memory so runs need no input files.
+ * Programs follow the grammar the SyntaxAnalyzer accepts; token class inputs only need to lex.
+ */
+public final class BenchmarkInputs {
+    private BenchmarkInputs() {
+    }
+
+    /**
+     * Builds a program of ordinary classes followed by the main class, growing until it
+     * reaches a size.
+     * @param bytes The approximate size in characters.
+     * @return The program.
+     */
+    public static String wide(int bytes) {
+        StringBuilder sb = new StringBuilder(bytes + 1024);
+        sb.append("import java.util.Scanner;\n\n");
+        for (int n = 0; sb.length() < bytes; n++) {
+            appendClass(sb, n);
+        }
+        appendMain(sb, "        y = new Shape0(1, 2);\n");
+        return sb.toString();
+    }
+
+    /**
+     * Builds a program whose main method nests statements and parenthesized expressions.
+     * @param depth The nesting depth of each.
+     * @return The program.
+     */
+    public static String deep(int depth) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            body.append(i % 2 == 0 ? "if (x > " + i + ") {\n" : "while (y < " + i + ") {\n");
+        }
+        body.append("y = ");
+        for (int i = 0; i < depth; i++) {
+            body.append("(x + ");
+        }
+        body.append('1');
+        for (int i = 0; i < depth; i++) {
+            body.append(')');
+        }
+        body.append(";\n");
+        for (int i = 0; i < depth; i++) {
+            body.append("}\n");
+        }
+        StringBuilder sb = new StringBuilder();
+        appendMain(sb, body.toString());
+        return sb.toString();
+    }
+
+    /**
+     * Builds text made mostly of one class of token.
+     * @param tokenClass One of comments, strings, operators, identifiers or numbers.
+     * @param bytes The approximate size in characters.
+     * @return The text.
+     * @throws IllegalArgumentException If the token class is unknown.
+     */
+    public static String tokenClass(String tokenClass, int bytes) {
+        StringBuilder sb = new StringBuilder(bytes + 256);
+        for (int n = 0; sb.length() < bytes; n++) {
+            switch (tokenClass) {
+                case "comments":
+                    sb.append("# single line comment number ").append(n).append(" with some text in it\n");
+                    sb.append("/*~ multi line comment ").append(n).append("\n   spanning lines ~*/\n");
+                    break;
+                case "strings":
+                    sb.append("s = \"");
+                    for (int i = 0; i < 8; i++) {
+                        sb.append("a fairly long string literal \\\"").append(n).append("\\\" ");
+                    }
+                    sb.append("\";\n");
+                    break;
+                case "operators":
+                    sb.append("a + b * c - d / e % f && g || h == i != j <= k >= l < m > n = !o;\n");
+                    break;
+                case "identifiers":
+                    sb.append("alpha").append(n).append(" beta_").append(n).append(" gammaDelta ")
+                        .append("epsilon zeta_eta theta").append(n % 97).append(" iota kappaLambda\n");
+                    break;
+                case "numbers":
+                    sb.append(n).append(' ').append(n * 31L).append(' ').append(n % 1000).append('.')
+                        .append(n % 7).append(" 0.").append(n).append(" 1234567 42\n");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown token class: " + tokenClass);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendClass(StringBuilder sb, int n) {
+        String name = "Shape" + n;
+        sb.append("#> Class ").append(n).append('\n')
+            .append("class ").append(name).append(" extends Base {\n")
+            .append("    private int width = ").append(n).append(";\n")
+            .append("    private double ratio = 0.5 * (").append(n).append(" + 1);\n")
+            .append("    String label = \"shape ").append(n).append("\";\n")
+            .append("    ").append(name).append("(int w, int h) {\n")
+            .append("        width = w;\n")
+            .append("        height = h * 2 + w / 3;\n")
+            .append("    }\n")
+            .append("    public int area(int scale) {\n")
+            .append("        int total = 0;\n")
+            .append("        for (int i = 0; i < scale; step(i)) {\n")
+            .append("            total = total + width * height - i % 4;\n")
+            .append("        }\n")
+            .append("        if (total > 100 && !clipped || scale == 0) {\n")
+            .append("            total = 100;\n")
+            .append("        } else {\n")
+            .append("            System.out.println(label, total);\n")
+            .append("        }\n")
+            .append("        return total;\n")
+            .append("    }\n")
+            .append("    void grow() {\n")
+            .append("        while (width < 1000) {\n")
+            .append("            width = width * 2 + 1;\n")
+            .append("        }\n")
+            .append("    }\n")
+            .append("}\n\n");
+    }
+
+    private static void appendMain(StringBuilder sb, String body) {
+        sb.append("public class Main {\n")
+            .append("    public static void main(String[] args) {\n")
+            .append("        int x = 1;\n")
+            .append("        int y = 2;\n")
+            .append(body)
+            .append("    }\n")
+            .append("}\n");
+    }
+}
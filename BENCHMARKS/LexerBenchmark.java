@@ -0,0 +1,71 @@
+package BENCHMARKS;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import LEXER.Lexer;
+import LEXER.Token;
+import LEXER.TokenBuffer;
+
+/**
+ * Lexing whole programs of increasing size, into a token list and into a packed buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+    /** small is about 1 KB, medium 64 KB and huge 16 MB. */
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private String source;
+    private int tokenCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (size) {
+            case "small":
+                source = BenchmarkInputs.wide(0);
+                break;
+            case "medium":
+                source = BenchmarkInputs.wide(64 << 10);
+                break;
+            case "huge":
+                source = BenchmarkInputs.wide(16 << 20);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown size: " + size);
+        }
+        tokenCount = new Lexer(source).tokenizeToBuffer().size();
+    }
+
+    @Benchmark
+    public List<Token> tokenize(Throughput throughput) {
+        List<Token> tokens = new Lexer(source).tokenize();
+        throughput.add(source.length(), tokenCount);
+        return tokens;
+    }
+
+    @Benchmark
+    public TokenBuffer tokenizeToBuffer(Throughput throughput) {
+        TokenBuffer tokens = new Lexer(source).tokenizeToBuffer();
+        throughput.add(source.length(), tokenCount);
+        return tokens;
+    }
+}
@@ -0,0 +1,110 @@
+package BENCHMARKS;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import LEXER.Lexer;
+import LEXER.TokenBuffer;
+import LEXER.TokenFile;
+import SYNTAX_ANALYZER.MainClassIndex;
+import SYNTAX_ANALYZER.RingTokenSource;
+import SYNTAX_ANALYZER.SyntaxAnalyzer;
+import SYNTAX_ANALYZER.SyntaxAnalyzer.Token;
+import SYNTAX_ANALYZER.TokenSource;
+
+/**
+ * The syntax analyzer on a deeply nested program and on a wide one of many classes: loading a
+ * binary token file the way SyntaxAnalyzer.main does, and parsing already converted tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    /** deep nests 200 statements and parentheses; wide is about 1 MB of classes. */
+    @Param({"deep", "wide"})
+    public String shape;
+
+    private int chars;
+    private Token[] tokens;
+    // Built once, as the parse benchmark measures the parser and not the indexing
+    private MainClassIndex mainClasses;
+    private Path tokenFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String source = shape.equals("deep") ? BenchmarkInputs.deep(200) : BenchmarkInputs.wide(1 << 20);
+        chars = source.length();
+        TokenBuffer buffer = new Lexer(source).tokenizeToBuffer();
+        tokens = new Token[buffer.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = Token.from(buffer.get(i));
+        }
+        mainClasses = MainClassIndex.of(buffer.size(), buffer::value);
+        tokenFile = Files.createTempFile("bench", ".bin");
+        TokenFile.write(buffer, tokenFile);
+        if (!parse()) {
+            throw new IllegalStateException("Benchmark input does not parse: " + shape);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(tokenFile);
+    }
+
+    @Benchmark
+    public int loadTokenFile(Throughput throughput) throws IOException {
+        TokenFile file = TokenFile.read(tokenFile);
+        MainClassIndex mainClasses = MainClassIndex.of(file.size(), file::value);
+        TokenSource source = SyntaxAnalyzer.sourceOf(file);
+        int count = 0;
+        while (source.next() != null) {
+            count++;
+        }
+        throughput.add(chars, count);
+        return count + mainClasses.size();
+    }
+
+    @Benchmark
+    public boolean PS(Throughput throughput) {
+        boolean result = parse();
+        throughput.add(chars, tokens.length);
+        return result;
+    }
+
+    private boolean parse() {
+        boolean[] supplied = {false};
+        TokenSource source = new RingTokenSource(() -> {
+            if (supplied[0]) {
+                return null;
+            }
+            supplied[0] = true;
+            return tokens;
+        });
+        // With the index, as SyntaxAnalyzer.main, BatchParser and LatencyHarness parse
+        return new SyntaxAnalyzer(source, mainClasses, DISCARD, DISCARD).PS();
+    }
+}
@@ -0,0 +1,35 @@
+package BENCHMARKS;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Input processed by a benchmark, reported by JMH next to the operation score as rates:
+ * megabytes per second (millions of source characters, which are bytes for ASCII input)
+ * and tokens per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+    public double megabytes;
+    public long tokens;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+        tokens = 0;
+    }
+
+    /**
+     * Counts one operation's input.
+     * @param chars The number of source characters processed.
+     * @param tokenCount The number of tokens processed.
+     */
+    public void add(int chars, int tokenCount) {
+        megabytes += chars / 1_000_000.0;
+        tokens += tokenCount;
+    }
+}
@@ -0,0 +1,50 @@
+package BENCHMARKS;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import LEXER.Lexer;
+import LEXER.TokenBuffer;
+
+/**
+ * Lexing 1 MB of text made mostly of one class of token, to see which classes the scanner is
+ * slow on. Comments produce no tokens, so their score is in megabytes only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenClassBenchmark {
+    @Param({"comments", "strings", "operators", "identifiers", "numbers"})
+    public String tokenClass;
+
+    private String source;
+    private int tokenCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = BenchmarkInputs.tokenClass(tokenClass, 1 << 20);
+        tokenCount = new Lexer(source).tokenizeToBuffer().size();
+    }
+
+    @Benchmark
+    public TokenBuffer tokenizeToBuffer(Throughput throughput) {
+        TokenBuffer tokens = new Lexer(source).tokenizeToBuffer();
+        throughput.add(source.length(), tokenCount);
+        return tokens;
+    }
+}
@@ -0,0 +1,311 @@
+package DRIVER;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import LEXER.Lexer;
+import LEXER.LexerMetrics;
+import LEXER.MetricsWriter;
+import LEXER.TokenBuffer;
+import SYNTAX_ANALYZER.MainClassIndex;
+import SYNTAX_ANALYZER.ParseMetrics;
+import SYNTAX_ANALYZER.ParseProfiler;
+import SYNTAX_ANALYZER.SyntaxAnalyzer;
+
+/**
+ * Lexes and parses many files concurrently, one SyntaxAnalyzer per file.
+ * Parser result output is discarded and syntax errors are collected per file,
+ * so files running side by side neither share nor interleave output. Each file is
+ * parsed once, with error recovery, so its result lists all of its syntax errors.
+ * Given metrics, every task adds to the same lock-free counters, and each result keeps its
+ * own file's backtracking so the inputs that cause the most can be picked out. A sample of the
+ * files can also be profiled, each with a profiler of its own that main() adds up afterwards.
+ */
+public class BatchParser {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+    /** Most syntax errors reported per file; the parser skips past each earlier one and goes on. */
+    public static final int MAX_ERRORS = 100;
+    /** Number of files main() lists as making the parser re-scan the most tokens when writing metrics. */
+    public static final int TOP_BACKTRACKING = 5;
+
+    /**
+     * Outcome of parsing one file.
+     */
+    public static final class Result {
+        private final Path file;
+        private final boolean success;
+        private final String errors;
+        private final long backtracks;
+        private final long rescanned;
+        private final ParseProfiler profile;
+
+        private Result(Path file, boolean success, String errors, long backtracks, long rescanned, ParseProfiler profile) {
+            this.file = file;
+            this.success = success;
+            this.errors = errors;
+            this.backtracks = backtracks;
+            this.rescanned = rescanned;
+            this.profile = profile;
+        }
+
+        /**
+         * Gets the parsed file.
+         * @return The file path.
+         */
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * Checks whether the file parsed successfully.
+         * @return True if parsing succeeded.
+         */
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * Gets the error output for the file.
+         * @return The syntax, lexer, or I/O errors reported, one per line; empty if there were none.
+         */
+        public String getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets the number of times the parser moved back in the file.
+         * @return The backtrack count, or 0 if the file was parsed without metrics.
+         */
+        public long getBacktracks() {
+            return backtracks;
+        }
+
+        /**
+         * Gets the number of tokens the parser moved back over and read again in the file.
+         * @return The token count, or 0 if the file was parsed without metrics.
+         */
+        public long getRescanned() {
+            return rescanned;
+        }
+
+        /**
+         * Gets the rule timings of the file.
+         * @return The profile, or null if the file was not profiled.
+         */
+        public ParseProfiler getProfile() {
+            return profile;
+        }
+    }
+
+    /**
+     * Parses files on a fixed pool with one thread per available processor.
+     * @param files The source files.
+     * @return One result per file, in the order of the files.
+     * @throws InterruptedException If interrupted while waiting for results.
+     */
+    public static List<Result> parseAll(List<Path> files) throws InterruptedException {
+        return parseAll(files, null, null, 0);
+    }
+
+    /**
+     * Parses files on a fixed pool with one thread per available processor, counting into metrics
+     * and profiling a sample of the files.
+     * @param files The source files.
+     * @param lexerMetrics The counters every lexer adds to, or null.
+     * @param parseMetrics The counters every parser adds to, or null.
+     * @param profileEvery Profile the first file and every profileEvery-th after it; 0 profiles none.
+     * @return One result per file, in the order of the files.
+     * @throws InterruptedException If interrupted while waiting for results.
+     */
+    public static List<Result> parseAll(List<Path> files, LexerMetrics lexerMetrics, ParseMetrics parseMetrics,
+                                        int profileEvery) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return parseAll(files, executor, lexerMetrics, parseMetrics, profileEvery);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Parses files on the given executor.
+     * @param files The source files.
+     * @param executor The executor to run one task per file on.
+     * @return One result per file, in the order of the files.
+     * @throws InterruptedException If interrupted while waiting for results.
+     */
+    public static List<Result> parseAll(List<Path> files, ExecutorService executor) throws InterruptedException {
+        return parseAll(files, executor, null, null, 0);
+    }
+
+    /**
+     * Parses files on the given executor, counting into metrics and profiling a sample of the files.
+     * @param files The source files.
+     * @param executor The executor to run one task per file on.
+     * @param lexerMetrics The counters every lexer adds to, or null.
+     * @param parseMetrics The counters every parser adds to, or null.
+     * @param profileEvery Profile the first file and every profileEvery-th after it; 0 profiles none.
+     * @return One result per file, in the order of the files.
+     * @throws InterruptedException If interrupted while waiting for results.
+     */
+    public static List<Result> parseAll(List<Path> files, ExecutorService executor, LexerMetrics lexerMetrics,
+                                        ParseMetrics parseMetrics, int profileEvery) throws InterruptedException {
+        List<Future<Result>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            boolean profile = profileEvery > 0 && i % profileEvery == 0;
+            futures.add(executor.submit(() -> parse(file, lexerMetrics, parseMetrics,
+                profile ? new ParseProfiler() : null)));
+        }
+        List<Result> results = new ArrayList<>(files.size());
+        for (Future<Result> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                // parse() reports its own failures, so this is a bug rather than bad input.
+                throw new IllegalStateException("Parser task failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Lexes and parses one file.
+     * @param file The source file.
+     * @return The result for the file.
+     */
+    public static Result parse(Path file) {
+        return parse(file, null, null, null);
+    }
+
+    /**
+     * Lexes and parses one file, counting into metrics.
+     * @param file The source file.
+     * @param lexerMetrics The counters the lexer adds to, or null.
+     * @param parseMetrics The counters the parser adds to, or null.
+     * @param profiler The profiler to time the parser's rules with, kept in the result, or null.
+     * @return The result for the file.
+     */
+    public static Result parse(Path file, LexerMetrics lexerMetrics, ParseMetrics parseMetrics, ParseProfiler profiler) {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        boolean success;
+        long backtracks = 0;
+        long rescanned = 0;
+        try (PrintStream err = new PrintStream(errors, true, StandardCharsets.UTF_8)) {
+            try {
+                Lexer lexer = new Lexer(Files.readString(file));
+                lexer.setMetrics(lexerMetrics);
+                lexer.setSourceName(file.toString());
+                TokenBuffer tokens = lexer.tokenizeToBuffer();
+                SyntaxAnalyzer parser = new SyntaxAnalyzer(SyntaxAnalyzer.sourceOf(tokens),
+                    MainClassIndex.of(tokens.size(), tokens::value), DISCARD, err);
+                parser.setErrorBudget(MAX_ERRORS);
+                parser.setMetrics(parseMetrics);
+                parser.setProfiler(profiler);
+                parser.setSourceName(file.toString());
+                success = parser.PS();
+                backtracks = parser.getBacktrackCount();
+                rescanned = parser.getRescannedCount();
+            } catch (IOException e) {
+                err.println("Error reading file: " + file + " (" + e.getMessage() + ")");
+                success = false;
+            } catch (RuntimeException | StackOverflowError e) {
+                // Deep enough nesting overflows the recursive rules; that fails this file, not the batch
+                err.println("Error parsing file: " + file + " (" + e + ")");
+                success = false;
+            }
+        }
+        return new Result(file, success, errors.toString(StandardCharsets.UTF_8), backtracks, rescanned, profiler);
+    }
+
+    /**
+     * Main method to parse every file given, directories included recursively, and print a summary.
+     * With --metrics=FILE lexer and parser counters are written to FILE, as JSON if its name ends
+     * in .json and in the Prometheus text format otherwise, and the files that made the parser
+     * re-scan the most tokens are listed. With --profile=N one file in N is profiled and the hot
+     * rules of those files are printed, and added to the metrics file if there is one.
+     * @param args Command line arguments ([--metrics=FILE] [--profile=N] files or directories).
+     */
+    public static void main(String[] args) {
+        List<Path> files = new ArrayList<>();
+        Path metricsPath = null;
+        int profileEvery = 0;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--metrics=")) {
+                    metricsPath = Paths.get(arg.substring("--metrics=".length()));
+                    continue;
+                }
+                if (arg.startsWith("--profile=")) {
+                    profileEvery = Math.max(1, Integer.parseInt(arg.substring("--profile=".length())));
+                    continue;
+                }
+                try (Stream<Path> walk = Files.walk(Paths.get(arg))) {
+                    files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            }
+            LexerMetrics lexerMetrics = metricsPath != null ? new LexerMetrics() : null;
+            ParseMetrics parseMetrics = metricsPath != null ? new ParseMetrics() : null;
+            long start = System.nanoTime();
+            List<Result> results = parseAll(files, lexerMetrics, parseMetrics, profileEvery);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            ParseProfiler profile = null;
+            if (profileEvery > 0) {
+                profile = new ParseProfiler();
+                for (Result result : results) {
+                    if (result.getProfile() != null) {
+                        profile.add(result.getProfile());
+                    }
+                }
+            }
+            int failed = 0;
+            for (Result result : results) {
+                if (!result.isSuccess()) {
+                    failed++;
+                    System.err.println("FAILED " + result.getFile());
+                    System.err.print(result.getErrors());
+                }
+            }
+            System.out.println(results.size() + " files parsed, " + failed + " failed, in " + elapsed + " ms");
+            if (metricsPath != null) {
+                MetricsWriter metrics = new MetricsWriter(MetricsWriter.Format.of(metricsPath));
+                lexerMetrics.export(metrics);
+                parseMetrics.export(metrics);
+                if (profile != null) {
+                    profile.export(metrics);
+                }
+                metrics.write(metricsPath);
+                System.out.println("Most tokens re-scanned:");
+                results.stream()
+                    .filter(result -> result.getRescanned() > 0)
+                    .sorted(Comparator.comparingLong(Result::getRescanned).reversed())
+                    .limit(TOP_BACKTRACKING)
+                    .forEach(result -> System.out.println("  " + result.getFile() + ": " + result.getBacktracks()
+                        + " backtracks, " + result.getRescanned() + " tokens re-scanned"));
+            }
+            if (profile != null) {
+                profile.report(System.out, ParseProfiler.DEFAULT_TOP);
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing files or writing metrics: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted");
+        }
+    }
+}
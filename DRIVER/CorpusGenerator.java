@@ -0,0 +1,555 @@
+package DRIVER;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import LEXER.Lexer;
+import LEXER.TokenBuffer;
+import LEXER.TokenType;
+import SYNTAX_ANALYZER.TokenKind;
+
+/**
+ * Writes random programs that the SyntaxAnalyzer accepts, for scale and load testing.
+ * A program is a few imports, ordinary classes with attributes, constructors and methods until
+ * the requested size is reached, and then the main class. The output depends only on the seed
+ * and the settings. It is written one class at a time, so files of any size take little memory.
+ */
+public class CorpusGenerator {
+    /** Size written when none is set, in characters. */
+    public static final long DEFAULT_SIZE = 1 << 20;
+    private static final String[] DATA_TYPES = {
+        "int", "String", "boolean", "double", "float", "char", "byte", "short", "long" };
+    private static final String[] MODIFIERS = { "public", "private", "protected", "static", "final", "abstract" };
+    private static final String[] BINARY_OPERATORS = {
+        "||", "&&", "==", "!=", "<", ">", "<=", ">=", "+", "-", "*", "/", "%" };
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ne", "ra", "su", "ti", "vo", "ze", "bar", "dex", "fin", "gor", "hul", "jin", "pax" };
+    private static final String[] WORDS = {
+        "value", "count", "total", "update", "the", "a", "of", "for", "input", "result", "check", "next",
+        "state", "buffer", "line", "item", "list", "when", "then", "order", "index", "cache", "node" };
+    private static final String INDENT = "    ";
+    // Depth up to which any statement may be compound; deeper nesting only follows one path
+    // per method, so the size of a method grows linearly with the maximum depth
+    private static final int FREE_DEPTH = 2;
+
+    private final SplittableRandom random;
+    private long size = DEFAULT_SIZE;
+    private int maxDepth = 3;
+    private int maxExpressionLength = 4;
+    private String[] vocabulary = vocabulary(64);
+    private double commentDensity = 0.1;
+
+    // Output of the class being generated, written out when it is complete
+    private final StringBuilder sb = new StringBuilder(4096);
+    private int depth;
+
+    /**
+     * Constructs a generator.
+     * @param seed The seed; equal seeds and settings give equal output.
+     */
+    public CorpusGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Sets the size to write. The last class and the main class go past it.
+     * @param size The size in characters, which are bytes as the output is ASCII.
+     */
+    public void setSize(long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size must not be negative: " + size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Sets how deeply if, while and for statements nest. Every method reaches this depth once.
+     * @param maxDepth The deepest nesting, 0 for no compound statements.
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Sets the largest number of binary operators in one expression.
+     * @param maxExpressionLength The operator count, 0 for single operands.
+     */
+    public void setMaxExpressionLength(int maxExpressionLength) {
+        if (maxExpressionLength < 0) {
+            throw new IllegalArgumentException("Expression length must not be negative: " + maxExpressionLength);
+        }
+        this.maxExpressionLength = maxExpressionLength;
+    }
+
+    /**
+     * Sets the number of distinct identifiers used for variables, methods and qualified names.
+     * @param words The vocabulary size.
+     */
+    public void setVocabulary(int words) {
+        if (words < 1) {
+            throw new IllegalArgumentException("Vocabulary must not be empty: " + words);
+        }
+        this.vocabulary = vocabulary(words);
+    }
+
+    /**
+     * Sets how often a comment precedes a class member or statement.
+     * @param commentDensity The probability, from 0 to 1.
+     */
+    public void setCommentDensity(double commentDensity) {
+        if (!(commentDensity >= 0 && commentDensity <= 1)) {
+            throw new IllegalArgumentException("Comment density must be between 0 and 1: " + commentDensity);
+        }
+        this.commentDensity = commentDensity;
+    }
+
+    /**
+     * Writes a program to a file.
+     * @param path The output file.
+     * @return The number of characters written.
+     * @throws IOException If writing fails.
+     */
+    public long generate(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            return generate(out);
+        }
+    }
+
+    /**
+     * Writes a program.
+     * @param out Where to write it; not closed.
+     * @return The number of characters written.
+     * @throws IOException If writing fails.
+     */
+    public long generate(Writer out) throws IOException {
+        long written = 0;
+        int imports = random.nextInt(4);
+        for (int i = 0; i < imports; i++) {
+            // No on-demand imports: qualified_name consumes the '.' before a '*'
+            sb.append("import ").append(word()).append('.').append(word()).append(";\n");
+        }
+        sb.append('\n');
+        for (int n = 0; written + sb.length() < size; n++) {
+            ordinaryClass("C" + n + capitalized(word()));
+            written += flush(out);
+        }
+        mainClass();
+        written += flush(out);
+        return written;
+    }
+
+    private long flush(Writer out) throws IOException {
+        int length = sb.length();
+        out.append(sb);
+        sb.setLength(0);
+        return length;
+    }
+
+    // Classes and members
+
+    private void ordinaryClass(String name) {
+        comment(0);
+        modifiers();
+        sb.append("class ").append(name);
+        if (random.nextInt(3) == 0) {
+            sb.append(" extends ").append(capitalized(word()));
+        }
+        sb.append(" {\n");
+        int members = 2 + random.nextInt(6);
+        for (int i = 0; i < members; i++) {
+            comment(1);
+            int kind = random.nextInt(10);
+            if (kind < 4) {
+                attribute();
+            } else if (kind < 5) {
+                constructor(name);
+            } else {
+                method();
+            }
+        }
+        sb.append("}\n\n");
+    }
+
+    private void mainClass() {
+        comment(0);
+        sb.append("public class Main {\n");
+        sb.append(INDENT).append("public static void main(String[] ").append(word()).append(") ");
+        body(1, true);
+        sb.append("}\n");
+    }
+
+    private void attribute() {
+        indent(1);
+        modifiers();
+        sb.append(dataType()).append(' ').append(word());
+        if (random.nextBoolean()) {
+            sb.append(" = ");
+            expression(maxExpressionLength);
+        }
+        sb.append(";\n");
+    }
+
+    private void constructor(String className) {
+        indent(1);
+        modifiers();
+        sb.append(className);
+        parameters();
+        body(1, false);
+    }
+
+    private void method() {
+        indent(1);
+        modifiers();
+        sb.append(random.nextInt(4) == 0 ? "void" : dataType()).append(' ').append(word());
+        parameters();
+        body(1, true);
+    }
+
+    private void modifiers() {
+        int count = random.nextInt(3);
+        int first = random.nextInt(MODIFIERS.length);
+        for (int i = 0; i < count; i++) {
+            sb.append(MODIFIERS[(first + i) % MODIFIERS.length]).append(' ');
+        }
+    }
+
+    private void parameters() {
+        sb.append('(');
+        int count = random.nextInt(4);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(dataType()).append(' ').append(word());
+        }
+        sb.append(") ");
+    }
+
+    // Statements
+
+    // A braced block ending the line; deep forces one statement in it to nest to the maximum depth
+    private void body(int level, boolean deep) {
+        sb.append("{\n");
+        int statements = 1 + random.nextInt(3);
+        int deepStatement = deep && depth < maxDepth ? random.nextInt(statements) : -1;
+        for (int i = 0; i < statements; i++) {
+            comment(level + 1);
+            statement(level + 1, i == deepStatement);
+        }
+        indent(level);
+        sb.append("}\n");
+    }
+
+    private void statement(int level, boolean deep) {
+        indent(level);
+        int kind = deep ? 7 + random.nextInt(3) : random.nextInt(depth < Math.min(maxDepth, FREE_DEPTH) ? 10 : 7);
+        switch (kind) {
+            case 0:
+            case 1:
+                sb.append(dataType()).append(' ').append(word());
+                if (random.nextInt(4) != 0) {
+                    sb.append(" = ");
+                    expression(maxExpressionLength);
+                }
+                sb.append(";\n");
+                break;
+            case 2:
+            case 3:
+                sb.append(word()).append(" = ");
+                expression(maxExpressionLength);
+                sb.append(";\n");
+                break;
+            case 4:
+                call();
+                sb.append(";\n");
+                break;
+            case 5:
+                // Expression statements have to start with an identifier
+                sb.append(word()).append(' ').append(binaryOperator()).append(' ');
+                expression(maxExpressionLength / 2);
+                sb.append(";\n");
+                break;
+            case 6:
+                sb.append("return");
+                if (random.nextBoolean()) {
+                    sb.append(' ');
+                    expression(maxExpressionLength);
+                }
+                sb.append(";\n");
+                break;
+            case 7:
+                sb.append("if (");
+                expression(maxExpressionLength);
+                sb.append(") ");
+                nested(level, deep);
+                if (random.nextBoolean()) {
+                    indent(level);
+                    sb.append("else ");
+                    nested(level, false);
+                }
+                break;
+            case 8:
+                sb.append("while (");
+                expression(maxExpressionLength);
+                sb.append(") ");
+                nested(level, deep);
+                break;
+            default:
+                forStatement(level, deep);
+                break;
+        }
+    }
+
+    private void forStatement(int level, boolean deep) {
+        sb.append("for (");
+        switch (random.nextInt(3)) {
+            case 0:
+                sb.append("int ").append(word()).append(" = 0; ");
+                break;
+            case 1:
+                sb.append(word()).append(" = ");
+                expression(1);
+                sb.append("; ");
+                break;
+            default:
+                sb.append("; ");
+                break;
+        }
+        if (random.nextInt(4) != 0) {
+            expression(maxExpressionLength);
+        }
+        sb.append("; ");
+        // The update is an expression; assignments are not accepted there
+        if (random.nextBoolean()) {
+            call();
+        } else if (random.nextBoolean()) {
+            expression(1);
+        }
+        sb.append(") ");
+        nested(level, deep);
+    }
+
+    // The body of a compound statement: mostly a block, sometimes a single statement or ';'
+    private void nested(int level, boolean deep) {
+        depth++;
+        int kind = deep ? 0 : random.nextInt(8);
+        if (kind < 6) {
+            body(level, deep);
+        } else if (kind < 7) {
+            sb.append('\n');
+            statement(level + 1, false);
+        } else {
+            sb.append(";\n");
+        }
+        depth--;
+    }
+
+    // Expressions
+
+    // An expression with up to length binary operators, split at a random operator
+    private void expression(int length) {
+        int operators = length == 0 ? 0 : random.nextInt(length + 1);
+        binary(operators);
+    }
+
+    private void binary(int operators) {
+        if (operators == 0) {
+            operand();
+            return;
+        }
+        int left = random.nextInt(operators);
+        boolean parenthesized = operators > 1 && random.nextInt(4) == 0;
+        if (parenthesized) {
+            sb.append('(');
+        }
+        binary(left);
+        sb.append(' ').append(binaryOperator()).append(' ');
+        binary(operators - 1 - left);
+        if (parenthesized) {
+            sb.append(')');
+        }
+    }
+
+    private void operand() {
+        if (random.nextInt(12) == 0) {
+            sb.append(random.nextBoolean() ? '-' : '!');
+        }
+        int kind = random.nextInt(20);
+        if (kind < 10) {
+            sb.append(word());
+            if (kind == 0) {
+                sb.append('.').append(word());
+            }
+        } else if (kind < 13) {
+            sb.append(random.nextInt(1000));
+        } else if (kind < 14) {
+            sb.append(random.nextInt(100)).append('.').append(random.nextInt(100));
+        } else if (kind < 15) {
+            sb.append('"');
+            int words = 1 + random.nextInt(5);
+            for (int i = 0; i < words; i++) {
+                sb.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            sb.append('"');
+        } else if (kind < 16) {
+            sb.append(random.nextBoolean() ? "true" : "false");
+        } else if (kind < 19) {
+            call();
+        } else {
+            sb.append("new ").append(capitalized(word()));
+            arguments();
+        }
+    }
+
+    private void call() {
+        sb.append(word());
+        int qualifiers = random.nextInt(3);
+        for (int i = 0; i < qualifiers; i++) {
+            sb.append('.').append(word());
+        }
+        arguments();
+    }
+
+    private void arguments() {
+        sb.append('(');
+        int count = random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            expression(maxExpressionLength / 4);
+        }
+        sb.append(')');
+    }
+
+    // Pieces
+
+    private void comment(int level) {
+        if (commentDensity == 0 || random.nextDouble() >= commentDensity) {
+            return;
+        }
+        indent(level);
+        boolean block = random.nextInt(5) == 0;
+        sb.append(block ? "/*~" : "#");
+        int words = 3 + random.nextInt(10);
+        for (int i = 0; i < words; i++) {
+            sb.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            if (block && i % 6 == 5) {
+                sb.append('\n');
+                indent(level);
+            }
+        }
+        sb.append(block ? " ~*/\n" : "\n");
+    }
+
+    private void indent(int level) {
+        for (int i = 0; i < level; i++) {
+            sb.append(INDENT);
+        }
+    }
+
+    private String word() {
+        return vocabulary[random.nextInt(vocabulary.length)];
+    }
+
+    private String dataType() {
+        return DATA_TYPES[random.nextInt(DATA_TYPES.length)];
+    }
+
+    private String binaryOperator() {
+        return BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)];
+    }
+
+    private static String capitalized(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    // Identifiers made of syllables, skipping any the lexer or the parser treats as reserved
+    private static String[] vocabulary(int words) {
+        List<String> result = new ArrayList<>(words);
+        for (int n = 0; result.size() < words; n++) {
+            StringBuilder word = new StringBuilder();
+            int rest = n;
+            do {
+                word.append(SYLLABLES[rest % SYLLABLES.length]);
+                rest /= SYLLABLES.length;
+            } while (rest > 0);
+            String candidate = word.toString();
+            TokenBuffer tokens = new Lexer(candidate).tokenizeToBuffer();
+            if (tokens.size() == 1 && tokens.type(0) == TokenType.IDENTIFIER && TokenKind.of(candidate) == TokenKind.OTHER) {
+                result.add(candidate);
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    // Parses a size such as 4096, 64K, 16M or 2G
+    private static long parseSize(String text) {
+        char unit = Character.toUpperCase(text.charAt(text.length() - 1));
+        int shift = unit == 'K' ? 10 : unit == 'M' ? 20 : unit == 'G' ? 30 : 0;
+        String digits = shift == 0 ? text : text.substring(0, text.length() - 1);
+        return Long.parseLong(digits) << shift;
+    }
+
+    // Writes one program: CorpusGenerator output [--seed=N] [--size=N[K|M|G]] [--depth=N]
+    // [--expression=N] [--vocabulary=N] [--comments=P]
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: CorpusGenerator output [--seed=N] [--size=N[K|M|G]] [--depth=N]"
+                + " [--expression=N] [--vocabulary=N] [--comments=P]");
+            return;
+        }
+        Path output = null;
+        long seed = 1;
+        List<String> settings = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--")) {
+                settings.add(arg);
+            } else {
+                output = Paths.get(arg);
+            }
+        }
+        try {
+            CorpusGenerator generator = new CorpusGenerator(seed);
+            for (String setting : settings) {
+                String value = setting.substring(setting.indexOf('=') + 1);
+                if (setting.startsWith("--size=")) {
+                    generator.setSize(parseSize(value));
+                } else if (setting.startsWith("--depth=")) {
+                    generator.setMaxDepth(Integer.parseInt(value));
+                } else if (setting.startsWith("--expression=")) {
+                    generator.setMaxExpressionLength(Integer.parseInt(value));
+                } else if (setting.startsWith("--vocabulary=")) {
+                    generator.setVocabulary(Integer.parseInt(value));
+                } else if (setting.startsWith("--comments=")) {
+                    generator.setCommentDensity(Double.parseDouble(value));
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + setting);
+                }
+            }
+            if (output == null) {
+                throw new IllegalArgumentException("No output file given");
+            }
+            long start = System.nanoTime();
+            long written = generator.generate(output);
+            System.out.println("Wrote " + written + " bytes to " + output + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error writing file: " + output + " (" + e.getMessage() + ")");
+        }
+    }
+}
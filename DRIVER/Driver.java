@@ -0,0 +1,95 @@
+package DRIVER;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import LEXER.StreamingLexer;
+import SYNTAX_ANALYZER.RingTokenSource;
+import SYNTAX_ANALYZER.SyntaxAnalyzer;
+import SYNTAX_ANALYZER.SyntaxAnalyzer.Token;
+
+/**
+ * Runs the lexer and the syntax analyzer in one process, without tokens.txt in between.
+ * The lexer runs on its own thread and hands tokens to the parser in batches through a
+ * bounded queue, so parsing starts as soon as the first batch is ready and the two
+ * phases overlap. Batches start small for a quick start and grow for throughput.
+ */
+public class Driver {
+    /** Number of tokens in the first batch. */
+    public static final int FIRST_BATCH = 16;
+    /** Largest number of tokens in a batch. */
+    public static final int MAX_BATCH = 1024;
+    /** Number of batches the lexer may run ahead of the parser. */
+    public static final int QUEUE_CAPACITY = 64;
+
+    /**
+     * Lexes and parses a source file.
+     * @param input The source file.
+     * @return True if parsing succeeded.
+     * @throws IllegalStateException If lexing failed.
+     * @throws InterruptedException If interrupted while waiting for the lexer thread to stop.
+     */
+    public static boolean run(Path input) throws InterruptedException {
+        TokenQueue queue = new TokenQueue(QUEUE_CAPACITY);
+        Thread lexer = new Thread(() -> produce(input, queue), "lexer");
+        lexer.start();
+        try {
+            SyntaxAnalyzer parser = new SyntaxAnalyzer(new RingTokenSource(queue::take));
+            parser.setSourceName(input.toString());
+            return parser.PS();
+        } finally {
+            // Stops the lexer if the parser finished before the input did.
+            queue.cancel();
+            lexer.join();
+        }
+    }
+
+    // Lexer thread: streams the file and publishes converted tokens batch by batch
+    private static void produce(Path input, TokenQueue queue) {
+        try (StreamingLexer lexer = StreamingLexer.open(input)) {
+            Token[] batch = new Token[FIRST_BATCH];
+            int count = 0;
+            LEXER.Token token;
+            while ((token = lexer.next()) != null) {
+                batch[count++] = Token.from(token);
+                if (count == batch.length) {
+                    if (!queue.put(batch)) {
+                        return;
+                    }
+                    batch = new Token[Math.min(batch.length * 2, MAX_BATCH)];
+                    count = 0;
+                }
+            }
+            if (count > 0 && !queue.put(Arrays.copyOf(batch, count))) {
+                return;
+            }
+            queue.close();
+        } catch (IOException | RuntimeException e) {
+            queue.fail(e);
+        } catch (Error e) {
+            // Ends the parser's wait for tokens, which would otherwise never return, before this thread dies of it
+            queue.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Main method to lex and parse a file in one run.
+     * @param args Command line arguments (input file path).
+     */
+    public static void main(String[] args) {
+        Path input = Paths.get(args.length > 0 ? args[0] : "input.txt");
+        try {
+            if (!run(input)) {
+                System.err.println("PARSING FAILED!");
+            }
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted");
+        }
+    }
+}
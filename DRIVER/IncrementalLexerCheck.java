@@ -0,0 +1,169 @@
+package DRIVER;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.SplittableRandom;
+
+import LEXER.IncrementalLexer;
+import LEXER.Lexer;
+import LEXER.TokenBuffer;
+
+/**
+ * Checks IncrementalLexer against lexing the whole text again. Random edits are applied to
+ * CorpusGenerator programs, and after each one the tokens must equal those of a full re-lex, and
+ * every token outside the reported change range must have the kind and text it had before the
+ * edit. Edits are mostly small and land anywhere, inside tokens included, and some write comment
+ * and string delimiters.
+ */
+public class IncrementalLexerCheck {
+    /** Programs edited when no count is given. */
+    public static final int DEFAULT_PROGRAMS = 50;
+    /** Edits per program when no count is given. */
+    public static final int DEFAULT_EDITS = 200;
+    // Text an edit inserts: single characters that join or split tokens, and delimiters
+    private static final String[] INSERTS = {
+        "", "x", "a", "1", " ", "\n", ";", ".", "=", "(", "\"", "/", "*", "/*~", "~*/", "//", "ab cd", "= 2;\n" };
+
+    private final SplittableRandom random;
+    private int failures;
+    private int edits;
+
+    /**
+     * Constructs a check.
+     * @param seed The seed of the programs and edits; equal seeds check equal edits.
+     */
+    public IncrementalLexerCheck(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Edits generated programs, printing every edit whose result differs from a full re-lex.
+     * @param programs The number of programs.
+     * @param count The number of edits to each.
+     * @param out The stream to print failures to.
+     * @return The number of failed edits.
+     * @throws IOException If generating fails.
+     */
+    public int run(int programs, int count, PrintStream out) throws IOException {
+        for (int p = 0; p < programs; p++) {
+            CorpusGenerator generator = new CorpusGenerator(random.nextLong());
+            generator.setSize(256L << random.nextInt(3));
+            StringWriter program = new StringWriter();
+            generator.generate(program);
+            IncrementalLexer lexer = new IncrementalLexer(program.toString());
+            for (int e = 0; e < count; e++) {
+                String before = lexer.getText().toString();
+                String[] kinds = kindsAndValues(lexer.getTokens());
+                int offset = random.nextInt(before.length() + 1);
+                int removed = Math.min(before.length() - offset, random.nextInt(4));
+                String inserted = INSERTS[random.nextInt(INSERTS.length)];
+                String after = before.substring(0, offset) + inserted + before.substring(offset + removed);
+                TokenBuffer expected;
+                try {
+                    expected = new Lexer(after).tokenizeToBuffer();
+                } catch (RuntimeException ex) {
+                    continue; // Text no lexer accepts; the edit is not applied
+                }
+                edits++;
+                IncrementalLexer.Change change;
+                try {
+                    change = lexer.edit(offset, removed, inserted);
+                } catch (RuntimeException ex) {
+                    fail(out, before, offset, removed, inserted, "edit failed: " + ex.getMessage());
+                    lexer = new IncrementalLexer(after);
+                    continue;
+                }
+                String problem = compare(kinds, lexer.getTokens(), expected, change);
+                if (problem != null) {
+                    fail(out, before, offset, removed, inserted, problem);
+                    lexer = new IncrementalLexer(after);
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Gets the number of edits applied.
+     * @return The edit count.
+     */
+    public int edits() {
+        return edits;
+    }
+
+    // What is wrong with the tokens after an edit, or null if nothing is
+    private static String compare(String[] before, TokenBuffer actual, TokenBuffer expected, IncrementalLexer.Change change) {
+        if (actual.size() != expected.size()) {
+            return actual.size() + " tokens, but a full re-lex gives " + expected.size();
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (actual.type(i) != expected.type(i) || actual.start(i) != expected.start(i)
+                    || actual.line(i) != expected.line(i) || !actual.value(i).equals(expected.value(i))) {
+                return "token " + i + " is " + describe(actual, i) + ", but a full re-lex gives " + describe(expected, i);
+            }
+        }
+        int shift = change.getNewEnd() - change.getOldEnd();
+        String[] after = kindsAndValues(actual);
+        for (int i = 0; i < after.length; i++) {
+            boolean outside = i < change.getFirstChanged() || i >= change.getNewEnd();
+            int old = i < change.getFirstChanged() ? i : i - shift;
+            if (outside && (old < 0 || old >= before.length || !before[old].equals(after[i]))) {
+                return "token " + i + " changed outside the reported range [" + change.getFirstChanged() + ","
+                    + change.getOldEnd() + ")->[" + change.getFirstChanged() + "," + change.getNewEnd() + ")";
+            }
+        }
+        return null;
+    }
+
+    private static String[] kindsAndValues(TokenBuffer tokens) {
+        String[] result = new String[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tokens.type(i) + " " + tokens.value(i);
+        }
+        return result;
+    }
+
+    private static String describe(TokenBuffer tokens, int index) {
+        return tokens.type(index) + " '" + tokens.value(index) + "' at " + tokens.start(index) + " line " + tokens.line(index);
+    }
+
+    private void fail(PrintStream out, String text, int offset, int removed, String inserted, String problem) {
+        failures++;
+        out.println("Edit at " + offset + " removing " + removed + " inserting \"" + inserted.replace("\n", "\\n") + "\": " + problem);
+        int from = Math.max(0, offset - 20);
+        out.println("  near: \"" + text.substring(from, Math.min(text.length(), offset + removed + 20)).replace("\n", "\\n") + "\"");
+    }
+
+    // Runs the check: IncrementalLexerCheck [--seed=N] [--programs=N] [--edits=N]; exits with 1
+    // if any edit disagrees with a full re-lex
+    public static void main(String[] args) {
+        long seed = 1;
+        int programs = DEFAULT_PROGRAMS;
+        int count = DEFAULT_EDITS;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--programs=")) {
+                programs = Integer.parseInt(value);
+            } else if (arg.startsWith("--edits=")) {
+                count = Integer.parseInt(value);
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(2);
+            }
+        }
+        try {
+            IncrementalLexerCheck check = new IncrementalLexerCheck(seed);
+            int failures = check.run(programs, count, System.out);
+            System.out.println(check.edits() + " edits checked, " + failures + " disagreed with a full re-lex");
+            if (failures > 0) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Error generating programs: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+}
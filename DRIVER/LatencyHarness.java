@@ -0,0 +1,509 @@
+package DRIVER;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import LEXER.Lexer;
+import LEXER.MetricsWriter;
+import LEXER.TokenBuffer;
+import SYNTAX_ANALYZER.MainClassIndex;
+import SYNTAX_ANALYZER.SyntaxAnalyzer;
+
+/**
+ * Measures the latency of lexing and parsing whole programs, source text to finished parse,
+ * under load. Worker threads take requests in turn, each the next program of a mixed corpus, and
+ * run a Lexer and a SyntaxAnalyzer on it as BatchParser does. Without a rate each worker starts
+ * its next request as soon as the last one ends. With a rate, request i is due i / rate seconds
+ * after the start, and its latency is measured from when it was due, so time spent queued behind
+ * slow requests counts, as a client sending at that rate would see it; the service time, from
+ * when a worker picked the request up, is kept apart.
+ *
+ * A run warms up unmeasured first. The measured part reports latency percentiles, throughput,
+ * the heap high-water mark and time spent in garbage collection, and can write them as metrics
+ * to compare runs across builds. Sources are held in memory, so file reads are not measured.
+ */
+public class LatencyHarness {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+    /** Requests measured when none are set. */
+    public static final long DEFAULT_REQUESTS = 2000;
+    /** Unmeasured requests run first when none are set. */
+    public static final long DEFAULT_WARMUP = 500;
+    /** Programs generated for main() when no files are given. */
+    public static final int DEFAULT_PROGRAMS = 32;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final List<String> sources;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double rate;
+    private long requests = DEFAULT_REQUESTS;
+    private long warmup = DEFAULT_WARMUP;
+
+    /**
+     * Results of the measured part of a run.
+     */
+    public static final class Result {
+        private final int threads;
+        private final double rate;
+        private final LatencyHistogram latency;
+        private final LatencyHistogram service;
+        private final long failures;
+        private final long bytes;
+        private final long elapsed;
+        private final long heapHighWater;
+        private final long maxPause;
+        private final Map<String, long[]> collections;
+
+        private Result(int threads, double rate, LatencyHistogram latency, LatencyHistogram service, long failures,
+                       long bytes, long elapsed, long heapHighWater, long maxPause, Map<String, long[]> collections) {
+            this.threads = threads;
+            this.rate = rate;
+            this.latency = latency;
+            this.service = service;
+            this.failures = failures;
+            this.bytes = bytes;
+            this.elapsed = elapsed;
+            this.heapHighWater = heapHighWater;
+            this.maxPause = maxPause;
+            this.collections = collections;
+        }
+
+        /**
+         * Gets the latencies, measured from when each request was due.
+         * @return The histogram in nanoseconds.
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Gets the service times, measured from when a worker picked each request up. Without
+         * a rate they equal the latencies.
+         * @return The histogram in nanoseconds.
+         */
+        public LatencyHistogram getServiceTime() {
+            return service;
+        }
+
+        /**
+         * Gets the number of requests whose program failed to lex or parse.
+         * @return The failure count.
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Gets the time from the first request being due to the last one ending.
+         * @return The time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsed;
+        }
+
+        /**
+         * Gets the largest heap occupancy seen: the occupancy just before each collection,
+         * when it is highest, and at the start and end of the run.
+         * @return The size in bytes.
+         */
+        public long getHeapHighWater() {
+            return heapHighWater;
+        }
+
+        /**
+         * Gets the number of collections and the time spent in them, by collector. For
+         * concurrent collectors such as ZGC the time of a cycle is mostly not a pause.
+         * @return Collection count and time in milliseconds, by collector name.
+         */
+        public Map<String, long[]> getCollections() {
+            return collections;
+        }
+
+        /**
+         * Prints a summary.
+         * @param out The stream to print to.
+         */
+        public void report(PrintStream out) {
+            double seconds = elapsed / 1e9;
+            out.println(String.format("%d requests, %d failed, in %.3f s on %d thread%s%s",
+                latency.count(), failures, seconds, threads, threads == 1 ? "" : "s",
+                rate > 0 ? String.format(" at %.1f/s", rate) : ""));
+            out.println(String.format("Throughput: %.1f requests/s, %.2f MB/s",
+                latency.count() / seconds, bytes / 1e6 / seconds));
+            print(out, "Latency (ms):", latency);
+            if (rate > 0) {
+                print(out, "Service (ms):", service);
+            }
+            out.println(String.format("Heap high-water mark: %.1f MB", heapHighWater / 1e6));
+            for (Map.Entry<String, long[]> collector : collections.entrySet()) {
+                out.println("GC " + collector.getKey() + ": " + collector.getValue()[0] + " collections, "
+                    + collector.getValue()[1] + " ms");
+            }
+            out.println(String.format("Longest collection: %.3f ms", maxPause / 1e6));
+        }
+
+        /**
+         * Writes the results, along with the thread count and rate they were measured at.
+         * @param out The writer.
+         */
+        public void export(MetricsWriter out) {
+            double seconds = elapsed / 1e9;
+            out.family("latency_threads", "gauge", "Worker threads sending requests").sample(threads);
+            out.family("latency_target_rate", "gauge", "Requests due per second, 0 for as fast as possible").sample(rate);
+            out.family("latency_requests_total", "counter", "Requests measured, by outcome")
+                .sample("outcome", "success", latency.count() - failures)
+                .sample("outcome", "failure", failures);
+            out.family("latency_elapsed_seconds", "gauge", "Time from the first request being due to the last ending")
+                .sample(seconds);
+            out.family("latency_requests_per_second", "gauge", "Requests completed per second").sample(latency.count() / seconds);
+            out.family("latency_bytes_per_second", "gauge", "Source chars lexed and parsed per second").sample(bytes / seconds);
+            quantiles(out, "latency_seconds", "Latency from when a request was due to when it ended, by quantile", latency);
+            quantiles(out, "latency_service_seconds", "Time from when a worker picked a request up to when it ended, by quantile",
+                service);
+            out.family("latency_heap_high_water_bytes", "gauge", "Largest heap occupancy seen").sample(heapHighWater);
+            out.family("latency_gc_collections_total", "counter", "Garbage collections, by collector");
+            for (Map.Entry<String, long[]> collector : collections.entrySet()) {
+                out.sample("collector", collector.getKey(), collector.getValue()[0]);
+            }
+            out.family("latency_gc_seconds_total", "counter", "Time spent in garbage collection, by collector");
+            for (Map.Entry<String, long[]> collector : collections.entrySet()) {
+                out.sample("collector", collector.getKey(), collector.getValue()[1] / 1e3);
+            }
+            out.family("latency_gc_max_seconds", "gauge", "Longest single collection").sample(maxPause / 1e9);
+        }
+
+        private static void print(PrintStream out, String title, LatencyHistogram histogram) {
+            StringBuilder line = new StringBuilder(title);
+            for (double percentile : PERCENTILES) {
+                line.append(String.format(" p%s %.3f", label(percentile), histogram.percentile(percentile) / 1e6));
+            }
+            line.append(String.format(" max %.3f mean %.3f", histogram.max() / 1e6, histogram.mean() / 1e6));
+            out.println(line);
+        }
+
+        private static void quantiles(MetricsWriter out, String name, String help, LatencyHistogram histogram) {
+            out.family(name, "gauge", help);
+            for (double percentile : PERCENTILES) {
+                out.sample("quantile", BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString(),
+                    histogram.percentile(percentile) / 1e9);
+            }
+            out.sample("quantile", "1", histogram.max() / 1e9);
+        }
+
+        private static String label(double percentile) {
+            return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+        }
+    }
+
+    // Latencies and totals of one worker, added up after the run
+    private static final class Tally {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram service = new LatencyHistogram();
+        long failures;
+        long bytes;
+    }
+
+    /**
+     * Constructs a harness.
+     * @param sources The programs requests take in turn.
+     * @throws IllegalArgumentException If there are none.
+     */
+    public LatencyHarness(List<String> sources) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No programs to run");
+        }
+        this.sources = List.copyOf(sources);
+    }
+
+    /**
+     * Sets the number of worker threads.
+     * @param threads The thread count.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets how many requests are due per second, over all threads.
+     * @param rate The rate, or 0 to run requests back to back.
+     */
+    public void setRate(double rate) {
+        if (!(rate >= 0)) {
+            throw new IllegalArgumentException("Rate must not be negative: " + rate);
+        }
+        this.rate = rate;
+    }
+
+    /**
+     * Sets the number of requests measured.
+     * @param requests The request count.
+     */
+    public void setRequests(long requests) {
+        if (requests < 1) {
+            throw new IllegalArgumentException("Requests must be at least 1: " + requests);
+        }
+        this.requests = requests;
+    }
+
+    /**
+     * Sets the number of requests run back to back and not measured before the measured ones.
+     * @param warmup The request count.
+     */
+    public void setWarmup(long warmup) {
+        if (warmup < 0) {
+            throw new IllegalArgumentException("Warmup must not be negative: " + warmup);
+        }
+        this.warmup = warmup;
+    }
+
+    /**
+     * Warms up, then runs and measures the requests.
+     * @return The results of the measured requests.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public Result run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            if (warmup > 0) {
+                phase(executor, warmup, 0);
+            }
+            List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+            long[] before = new long[collectors.size() * 2];
+            for (int i = 0; i < collectors.size(); i++) {
+                before[i * 2] = collectors.get(i).getCollectionCount();
+                before[i * 2 + 1] = collectors.get(i).getCollectionTime();
+            }
+            AtomicLong highWater = new AtomicLong(heapUsed());
+            AtomicLong maxPause = new AtomicLong();
+            NotificationListener listener = (notification, handback) -> collected(notification, highWater, maxPause);
+            for (GarbageCollectorMXBean collector : collectors) {
+                if (collector instanceof NotificationEmitter) {
+                    ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+                }
+            }
+            long start = System.nanoTime();
+            Tally total;
+            try {
+                total = phase(executor, requests, rate);
+            } finally {
+                for (GarbageCollectorMXBean collector : collectors) {
+                    if (collector instanceof NotificationEmitter) {
+                        try {
+                            ((NotificationEmitter) collector).removeNotificationListener(listener);
+                        } catch (ListenerNotFoundException e) {
+                            // Not added, so nothing to remove
+                        }
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            highWater.accumulateAndGet(heapUsed(), Math::max);
+            Map<String, long[]> collections = new LinkedHashMap<>();
+            for (int i = 0; i < collectors.size(); i++) {
+                collections.put(collectors.get(i).getName(), new long[] {
+                    collectors.get(i).getCollectionCount() - before[i * 2],
+                    collectors.get(i).getCollectionTime() - before[i * 2 + 1] });
+            }
+            return new Result(threads, rate, total.latency, total.service, total.failures, total.bytes, elapsed,
+                highWater.get(), maxPause.get(), collections);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Runs count requests on every thread, due at rate per second or back to back if rate is 0
+    private Tally phase(ExecutorService executor, long count, double rate) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        double interval = rate > 0 ? 1e9 / rate : 0;
+        long start = System.nanoTime();
+        List<Future<Tally>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                Tally tally = new Tally();
+                for (long i; (i = next.getAndIncrement()) < count; ) {
+                    long due = start + (long) (i * interval);
+                    for (long wait; rate > 0 && (wait = due - System.nanoTime()) > 0; ) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long began = System.nanoTime();
+                    String source = sources.get((int) (i % sources.size()));
+                    if (!process(source)) {
+                        tally.failures++;
+                    }
+                    long ended = System.nanoTime();
+                    tally.latency.record(ended - (rate > 0 ? due : began));
+                    tally.service.record(ended - began);
+                    tally.bytes += source.length();
+                }
+                return tally;
+            }));
+        }
+        Tally total = new Tally();
+        for (Future<Tally> future : futures) {
+            try {
+                Tally tally = future.get();
+                total.latency.add(tally.latency);
+                total.service.add(tally.service);
+                total.failures += tally.failures;
+                total.bytes += tally.bytes;
+            } catch (ExecutionException e) {
+                // process() reports failures as results, so this is a bug rather than bad input.
+                throw new IllegalStateException("Worker failed", e.getCause());
+            }
+        }
+        return total;
+    }
+
+    // Lexes and parses one program, discarding the parser's output
+    private static boolean process(String source) {
+        try {
+            TokenBuffer tokens = new Lexer(source).tokenizeToBuffer();
+            SyntaxAnalyzer parser = new SyntaxAnalyzer(SyntaxAnalyzer.sourceOf(tokens),
+                MainClassIndex.of(tokens.size(), tokens::value), DISCARD, DISCARD);
+            parser.setErrorBudget(BatchParser.MAX_ERRORS);
+            return parser.PS();
+        } catch (RuntimeException | StackOverflowError e) {
+            return false; // As in BatchParser, a program nested too deeply for the parser just fails
+        }
+    }
+
+    // Raises the high-water mark to the heap occupancy before a collection, and the longest
+    // collection to its duration
+    private static void collected(Notification notification, AtomicLong highWater, AtomicLong maxPause) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long used = 0;
+        for (MemoryUsage usage : info.getGcInfo().getMemoryUsageBeforeGc().values()) {
+            used += usage.getUsed();
+        }
+        highWater.accumulateAndGet(used, Math::max);
+        maxPause.accumulateAndGet(info.getGcInfo().getDuration() * 1_000_000, Math::max);
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Generates a corpus of programs of mixed size and shape: from 1K to 256K characters, with
+     * statements nested one to five deep, up to six operators per expression and varying numbers
+     * of comments.
+     * @param programs The number of programs.
+     * @param seed The seed; equal seeds give equal corpora.
+     * @return The programs.
+     * @throws IOException If generating fails.
+     */
+    public static List<String> generateCorpus(int programs, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> corpus = new ArrayList<>(programs);
+        for (int i = 0; i < programs; i++) {
+            CorpusGenerator generator = new CorpusGenerator(random.nextLong());
+            generator.setSize(1024L << random.nextInt(9));
+            generator.setMaxDepth(1 + random.nextInt(5));
+            generator.setMaxExpressionLength(random.nextInt(7));
+            generator.setCommentDensity(random.nextDouble(0.3));
+            StringWriter out = new StringWriter();
+            generator.generate(out);
+            corpus.add(out.toString());
+        }
+        return corpus;
+    }
+
+    // Runs the harness: LatencyHarness [--threads=N] [--rate=R] [--requests=N] [--warmup=N]
+    // [--programs=N] [--seed=N] [--output=FILE] [files or directories]. Without files a mixed
+    // corpus is generated. Results go to FILE, latency.json by default, as JSON if its name ends
+    // in .json and in the Prometheus text format otherwise.
+    public static void main(String[] args) {
+        List<Path> files = new ArrayList<>();
+        int programs = DEFAULT_PROGRAMS;
+        long seed = 1;
+        Path output = Paths.get("latency.json");
+        List<String> settings = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--programs=")) {
+                    programs = Integer.parseInt(value);
+                } else if (arg.startsWith("--seed=")) {
+                    seed = Long.parseLong(value);
+                } else if (arg.startsWith("--output=")) {
+                    output = Paths.get(value);
+                } else if (arg.startsWith("--")) {
+                    settings.add(arg);
+                } else {
+                    try (Stream<Path> walk = Files.walk(Paths.get(arg))) {
+                        files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                    }
+                }
+            }
+            List<String> sources = new ArrayList<>();
+            if (files.isEmpty()) {
+                sources.addAll(generateCorpus(programs, seed));
+            }
+            for (Path file : files) {
+                sources.add(Files.readString(file));
+            }
+            LatencyHarness harness = new LatencyHarness(sources);
+            for (String setting : settings) {
+                String value = setting.substring(setting.indexOf('=') + 1);
+                if (setting.startsWith("--threads=")) {
+                    harness.setThreads(Integer.parseInt(value));
+                } else if (setting.startsWith("--rate=")) {
+                    harness.setRate(Double.parseDouble(value));
+                } else if (setting.startsWith("--requests=")) {
+                    harness.setRequests(Long.parseLong(value));
+                } else if (setting.startsWith("--warmup=")) {
+                    harness.setWarmup(Long.parseLong(value));
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + setting);
+                }
+            }
+            Result result = harness.run();
+            result.report(System.out);
+            MetricsWriter metrics = new MetricsWriter(MetricsWriter.Format.of(output));
+            result.export(metrics);
+            metrics.write(output);
+            System.out.println("Results written to " + output);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error reading files or writing results: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package DRIVER;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies in nanoseconds with a bounded relative error, in the manner of
+ * HdrHistogram. Values are grouped by their highest set bit, and each group is split into
+ * linear sub-buckets, so any value from a nanosecond to centuries lands in a bucket no wider
+ * than 1/128 of the values in it. Recording is an array increment and takes no allocation.
+ *
+ * A histogram belongs to one thread at a time; histograms recorded on other threads are
+ * combined with add().
+ */
+public final class LatencyHistogram {
+    // Sub-buckets per power of two are HALF; values below 2 * HALF are counted exactly
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 2) * HALF];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Records one value.
+     * @param nanos The latency in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds another histogram's values to this one's. Neither may be recorded into during the call.
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes every value recorded.
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Gets the number of values recorded.
+     * @return The count.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Gets the smallest value recorded.
+     * @return The value in nanoseconds, or 0 if there is none.
+     */
+    public long min() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Gets the largest value recorded.
+     * @return The value in nanoseconds, or 0 if there is none.
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Gets the mean of the values recorded.
+     * @return The mean in nanoseconds, or 0 if there is none.
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets a percentile of the values recorded.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The highest value of the bucket holding the percentile in nanoseconds, at most the
+     *     largest value, or 0 if there is none.
+     */
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highest(i));
+            }
+        }
+        return max;
+    }
+
+    // Values of 2^k to 2^(k+1) - 1, for k of SUB_BUCKET_BITS or more, are shifted right until
+    // SUB_BUCKET_BITS remain, so the top HALF sub-buckets of each power of two follow on from
+    // the ones before
+    private static int index(long value) {
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    private static long highest(int index) {
+        int shift = Math.max(0, index / HALF - 1);
+        long top = index - (long) shift * HALF;
+        return ((top + 1) << shift) - 1;
+    }
+}
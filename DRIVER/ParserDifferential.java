@@ -0,0 +1,288 @@
+package DRIVER;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import LEXER.Lexer;
+import LEXER.Token;
+import LEXER.TokenBuffer;
+import SYNTAX_ANALYZER.MainClassIndex;
+import SYNTAX_ANALYZER.LL1Parser;
+import SYNTAX_ANALYZER.LL1Table;
+import SYNTAX_ANALYZER.SyntaxAnalyzer;
+
+/**
+ * Checks that the table-driven LL1Parser and the recursive SyntaxAnalyzer accept the same
+ * programs, as grammar.txt says they do apart from the differences it lists. Programs come from
+ * CorpusGenerator, which both parsers must accept, and from mutants of them with a token deleted,
+ * duplicated, swapped with the next or replaced, or a name changed to main, which either parser
+ * may reject but both must judge alike. A mismatch on an input that has one of the listed
+ * differences is counted but not reported. SyntaxAnalyzer must also report a syntax error for
+ * every input it rejects, so that no failing parse goes without a diagnostic.
+ */
+public class ParserDifferential {
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+    /** Programs checked when no count is given. */
+    public static final int DEFAULT_PROGRAMS = 200;
+    /** Mutants checked per program when no count is given. */
+    public static final int DEFAULT_MUTANTS = 50;
+    // Tokens a replacement draws from: the ones that steer the main class, members and statements
+    private static final String[] REPLACEMENTS = {
+        "main", "void", "String", "public", "static", "final", "int", "x", "(", ")", "{", "}", ";", ",",
+        "[", "]", "=", "import", "class", "return", "*", "." };
+    private static final Set<String> MODIFIERS = Set.of("public", "private", "protected", "static", "final", "abstract");
+    private static final Set<String> NOT_NAMES = Set.of(
+        "void", "int", "String", "boolean", "double", "float", "char", "byte", "short", "long", "class", "import",
+        "return", "if", "while", "for", "else", "new", "extends", "true", "false");
+
+    private final SplittableRandom random;
+    private int mismatches;
+    private int listed;
+    private int silent;
+    private int checked;
+
+    /**
+     * Constructs a check.
+     * @param seed The seed of the programs and mutants; equal seeds check equal inputs.
+     */
+    public ParserDifferential(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Checks generated programs and their mutants, printing every unexplained mismatch.
+     * @param programs The number of programs.
+     * @param mutants The number of mutants of each.
+     * @param out The stream to print mismatches to.
+     * @return The number of unexplained mismatches.
+     * @throws IOException If generating fails.
+     */
+    public int run(int programs, int mutants, PrintStream out) throws IOException {
+        for (int p = 0; p < programs; p++) {
+            CorpusGenerator generator = new CorpusGenerator(random.nextLong());
+            generator.setSize(256L << random.nextInt(4));
+            generator.setMaxDepth(random.nextInt(4));
+            generator.setMaxExpressionLength(random.nextInt(4));
+            StringWriter program = new StringWriter();
+            generator.generate(program);
+            List<String> tokens = new ArrayList<>();
+            for (Token token : new Lexer(program.toString()).tokenize()) {
+                tokens.add(token.getValue());
+            }
+            compare(tokens, true, out);
+            for (int m = 0; m < mutants; m++) {
+                compare(mutate(tokens), false, out);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Gets the number of inputs both parsers ran on.
+     * @return The input count.
+     */
+    public int checked() {
+        return checked;
+    }
+
+    /**
+     * Gets the number of inputs SyntaxAnalyzer rejected without reporting a syntax error, which
+     * are also counted as mismatches.
+     * @return The input count.
+     */
+    public int silent() {
+        return silent;
+    }
+
+    /**
+     * Gets the number of mismatches explained by a difference grammar.txt lists.
+     * @return The mismatch count.
+     */
+    public int listed() {
+        return listed;
+    }
+
+    // Runs both parsers; a generated program must pass both, and any input must get one verdict
+    private void compare(List<String> tokens, boolean generated, PrintStream out) {
+        String text = String.join(" ", tokens);
+        TokenBuffer buffer;
+        try {
+            buffer = new Lexer(text).tokenizeToBuffer();
+        } catch (RuntimeException e) {
+            return; // A mutant the lexer rejects reaches neither parser
+        }
+        checked++;
+        boolean ll1 = new LL1Parser(LL1Table.standard(), SyntaxAnalyzer.sourceOf(buffer), DISCARD, DISCARD).parse();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        boolean recursive = new SyntaxAnalyzer(SyntaxAnalyzer.sourceOf(buffer),
+            MainClassIndex.of(buffer.size(), buffer::value), DISCARD,
+            new PrintStream(errors, true, StandardCharsets.UTF_8)).PS();
+        if (!recursive && !errors.toString(StandardCharsets.UTF_8).contains("SYNTAX ERROR")) {
+            silent++;
+            mismatches++;
+            out.println((generated ? "Generated program" : "Mutant") + " rejected by SyntaxAnalyzer without a syntax error:");
+            out.println("  " + text);
+        }
+        if (ll1 == recursive && (recursive || !generated)) {
+            return;
+        }
+        if (ll1 != recursive && !generated && listedDifference(tokens)) {
+            listed++;
+            return;
+        }
+        mismatches++;
+        out.println((generated ? "Generated program" : "Mutant") + " accepted by "
+            + (ll1 ? "LL1Parser" : recursive ? "SyntaxAnalyzer" : "neither parser") + " only:");
+        out.println("  " + text);
+    }
+
+    private List<String> mutate(List<String> tokens) {
+        List<String> mutant = new ArrayList<>(tokens);
+        int i = random.nextInt(mutant.size());
+        switch (random.nextInt(5)) {
+            case 0:
+                mutant.remove(i);
+                break;
+            case 1:
+                mutant.add(i, mutant.get(i));
+                break;
+            case 2:
+                if (i + 1 < mutant.size()) {
+                    mutant.set(i, mutant.set(i + 1, mutant.get(i)));
+                }
+                break;
+            case 3:
+                mutant.set(i, REPLACEMENTS[random.nextInt(REPLACEMENTS.length)]);
+                break;
+            default:
+                // Rename a method to main, mostly making it an ordinary method called main, and
+                // sometimes give it a main method's public static
+                for (int k = 0; k < mutant.size() - 2; k++) {
+                    int at = (i + k) % (mutant.size() - 2);
+                    if (mutant.get(at + 2).equals("(") && !mutant.get(at + 1).equals("main")
+                            && (mutant.get(at).equals("void") || mutant.get(at).equals("int"))) {
+                        mutant.set(at + 1, "main");
+                        if (random.nextInt(3) == 0) {
+                            mutant.set(at, "void");
+                            mutant.addAll(at, List.of("public", "static"));
+                        }
+                        break;
+                    }
+                }
+                break;
+        }
+        return mutant;
+    }
+
+    // Whether an input has a difference grammar.txt lists: an on-demand import, a member
+    // ID ( named other than its class, modifiers other than public static before a first member
+    // void main(String[] ID), or public static void main before the first } of a class body
+    // anywhere but there
+    private static boolean listedDifference(List<String> tokens) {
+        int depth = 0;
+        String className = null;
+        boolean memberStart = false;
+        boolean firstMember = false;
+        boolean closed = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("*") && depth == 0 && i > 0 && tokens.get(i - 1).equals(".")) {
+                return true;
+            }
+            if (token.equals("class") && depth == 0 && i + 1 < tokens.size()) {
+                className = tokens.get(i + 1);
+            }
+            int k = i;
+            while (k < tokens.size() && MODIFIERS.contains(tokens.get(k))) {
+                k++;
+            }
+            boolean main = k + 1 < tokens.size() && tokens.get(k).equals("void") && tokens.get(k + 1).equals("main");
+            if (depth == 1 && memberStart) {
+                if (k + 1 < tokens.size() && tokens.get(k + 1).equals("(") && isName(tokens.get(k))
+                        && !tokens.get(k).equals(className)) {
+                    return true;
+                }
+                boolean publicStatic = k == i + 2 && tokens.get(i).equals("public") && tokens.get(i + 1).equals("static");
+                if (main && firstMember && !publicStatic && isMainArguments(tokens, k + 2)) {
+                    return true;
+                }
+            }
+            if (depth >= 1 && !closed && isMainHeader(tokens, i)
+                    && !(depth == 1 && memberStart && firstMember && isMainArguments(tokens, i + 4))) {
+                return true;
+            }
+            memberStart = false;
+            firstMember = false;
+            if (token.equals("{")) {
+                depth++;
+                memberStart = true;
+                firstMember = depth == 1;
+                closed = closed && depth > 1;
+            } else if (token.equals("}")) {
+                depth--;
+                memberStart = depth == 1;
+                closed = true;
+            } else if (token.equals(";")) {
+                memberStart = depth == 1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMainHeader(List<String> tokens, int at) {
+        return at + 4 <= tokens.size() && tokens.get(at).equals("public") && tokens.get(at + 1).equals("static")
+            && tokens.get(at + 2).equals("void") && tokens.get(at + 3).equals("main");
+    }
+
+    // ( String [ ] ID ) or ( String ID [ ] ), the parameters of a main method
+    private static boolean isMainArguments(List<String> tokens, int at) {
+        List<String> rest = tokens.subList(Math.min(tokens.size(), at), Math.min(tokens.size(), at + 6));
+        return rest.size() == 6 && rest.get(0).equals("(") && rest.get(1).equals("String") && rest.get(5).equals(")")
+            && (rest.get(2).equals("[") && rest.get(3).equals("]") || rest.get(3).equals("[") && rest.get(4).equals("]"));
+    }
+
+    private static boolean isName(String token) {
+        return Character.isJavaIdentifierStart(token.charAt(0)) && !NOT_NAMES.contains(token);
+    }
+
+    // Runs the check: ParserDifferential [--seed=N] [--programs=N] [--mutants=N]; exits with 1
+    // if any mismatch is not one grammar.txt lists
+    public static void main(String[] args) {
+        long seed = 1;
+        int programs = DEFAULT_PROGRAMS;
+        int mutants = DEFAULT_MUTANTS;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--programs=")) {
+                programs = Integer.parseInt(value);
+            } else if (arg.startsWith("--mutants=")) {
+                mutants = Integer.parseInt(value);
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(2);
+            }
+        }
+        try {
+            ParserDifferential check = new ParserDifferential(seed);
+            int mismatches = check.run(programs, mutants, System.out);
+            System.out.println(check.checked() + " inputs checked, " + mismatches + " unexplained mismatches, "
+                + check.listed() + " from listed differences, " + check.silent() + " rejected without a syntax error");
+            if (mismatches > 0) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Error generating programs: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+}
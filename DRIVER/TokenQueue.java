@@ -0,0 +1,141 @@
+package DRIVER;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import SYNTAX_ANALYZER.SyntaxAnalyzer.Token;
+
+/**
+ * Bounded queue of token batches between exactly one producer thread and one consumer thread.
+ * Slots are handed over through two counters, without locks; a side that has to wait spins
+ * briefly, then yields, then parks for short intervals.
+ */
+public class TokenQueue {
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = 20_000;
+
+    private final Token[][] slots;
+    private final int mask;
+    // Next slot to take; written only by the consumer.
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to fill; written only by the producer.
+    private final AtomicLong tail = new AtomicLong();
+    // Producer's last view of head and consumer's last view of tail, to avoid reading the other side's counter.
+    private long cachedHead;
+    private long cachedTail;
+    private volatile boolean closed;
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+
+    /**
+     * Constructs a TokenQueue.
+     * @param capacity The maximum number of batches in flight, rounded up to a power of two.
+     */
+    public TokenQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new Token[size][];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds a batch, waiting while the queue is full. Producer thread only.
+     * @param batch The tokens to hand over; must not be modified afterwards.
+     * @return False if the consumer cancelled the queue and the batch was dropped.
+     */
+    public boolean put(Token[] batch) {
+        long t = tail.get();
+        int idle = 0;
+        while (t - cachedHead == slots.length) {
+            if (cancelled) {
+                return false;
+            }
+            cachedHead = head.get();
+            if (t - cachedHead == slots.length) {
+                idle = backOff(idle);
+            }
+        }
+        slots[(int) t & mask] = batch;
+        tail.lazySet(t + 1);
+        return !cancelled;
+    }
+
+    /**
+     * Marks the end of the input after the last batch. Producer thread only.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Ends the input because the producer failed; take() rethrows the failure. Producer thread only.
+     * @param error The cause of the failure.
+     */
+    public void fail(Throwable error) {
+        failure = error;
+        closed = true;
+    }
+
+    /**
+     * Removes the next batch, waiting while the queue is empty. Consumer thread only.
+     * @return The batch, or null once the producer has closed the queue and every batch has been taken.
+     * @throws IllegalStateException If the producer failed.
+     */
+    public Token[] take() {
+        long h = head.get();
+        int idle = 0;
+        while (h == cachedTail) {
+            // Read closed before tail, so a batch put just before close() is not missed.
+            boolean done = closed;
+            cachedTail = tail.get();
+            if (h != cachedTail) {
+                break;
+            }
+            if (done) {
+                if (failure != null) {
+                    String reason = failure.getMessage() != null ? failure.getMessage() : failure.toString();
+                    throw new IllegalStateException("Token producer failed: " + reason, failure);
+                }
+                return null;
+            }
+            idle = backOff(idle);
+        }
+        int slot = (int) h & mask;
+        Token[] batch = slots[slot];
+        slots[slot] = null;
+        head.lazySet(h + 1);
+        return batch;
+    }
+
+    /**
+     * Tells the producer to stop, for when the consumer gives up early. Consumer thread only.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the consumer has cancelled the queue.
+     * @return True if further batches will be dropped.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private static int backOff(int idle) {
+        if (idle < SPINS) {
+            Thread.onSpinWait();
+        } else if (idle < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+}
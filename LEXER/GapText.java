@@ -0,0 +1,100 @@
+package LEXER;
+
+import java.util.Arrays;
+
+/**
+ * Editable text stored as a gap buffer, so that a run of edits near the same offset
+ * costs time proportional to the edits rather than to the length of the text.
+ */
+final class GapText implements CharSequence {
+    private char[] chars;
+    private int gapStart;
+    private int gapEnd;
+
+    /**
+     * Constructs a GapText holding a copy of the given text.
+     * @param text The initial text.
+     */
+    GapText(CharSequence text) {
+        int length = text.length();
+        chars = new char[Math.max(16, length + length / 8)];
+        for (int i = 0; i < length; i++) {
+            chars[i] = text.charAt(i);
+        }
+        gapStart = length;
+        gapEnd = chars.length;
+    }
+
+    /**
+     * Replaces a range of the text.
+     * @param offset The offset of the first replaced character.
+     * @param removedLength The number of characters replaced.
+     * @param inserted The replacement text.
+     */
+    void replace(int offset, int removedLength, CharSequence inserted) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > length()) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + removedLength)
+                + ") out of bounds for length " + length());
+        }
+        moveGap(offset);
+        gapEnd += removedLength;
+        int count = inserted.length();
+        if (gapEnd - gapStart < count) {
+            int capacity = Math.max(chars.length * 2, length() + count + 16);
+            char[] grown = new char[capacity];
+            int tail = chars.length - gapEnd;
+            System.arraycopy(chars, 0, grown, 0, gapStart);
+            System.arraycopy(chars, gapEnd, grown, capacity - tail, tail);
+            chars = grown;
+            gapEnd = capacity - tail;
+        }
+        for (int i = 0; i < count; i++) {
+            chars[gapStart++] = inserted.charAt(i);
+        }
+    }
+
+    @Override
+    public int length() {
+        return chars.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    public char charAt(int index) {
+        return index < gapStart ? chars[index] : chars[index + gapEnd - gapStart];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > length()) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + length());
+        }
+        if (end <= gapStart) {
+            return new String(chars, start, end - start);
+        }
+        if (start >= gapStart) {
+            return new String(chars, start + gapEnd - gapStart, end - start);
+        }
+        char[] range = Arrays.copyOfRange(chars, start, end);
+        System.arraycopy(chars, gapEnd, range, gapStart - start, end - gapStart);
+        return new String(range);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+    private void moveGap(int offset) {
+        if (offset < gapStart) {
+            int count = gapStart - offset;
+            System.arraycopy(chars, offset, chars, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (offset > gapStart) {
+            int count = offset - gapStart;
+            System.arraycopy(chars, gapEnd, chars, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package LEXER;
+
+/**
+ * Keeps the tokens of a document up to date as it is edited, by re-lexing only around
+ * each edited range and reusing the tokens on both sides of it.
+ *
+ * Scanning restarts after the last token that begins before the edited line, since no
+ * token's lookahead crosses a newline. The one exception is a "/*~" with no closing
+ * "~*&#47;", which scans to the end of input before failing; it shows up as the tokens
+ * "/", "*" and an invalid "~", and scanning restarts there if the edit writes a "~*&#47;".
+ * Re-lexing stops at the first token that starts where an old token past the edit started.
+ *
+ * The text and the tokens are kept in gap buffers positioned at the last edit, so the
+ * cost of an edit depends on its size and its distance from the previous one, not on the
+ * length of the document. Tokens and values read from getTokens() refer to the live text
+ * and are only valid until the next edit.
+ */
+public class IncrementalLexer {
+    private final GapText text;
+    private final TokenBuffer tokens;
+
+    /**
+     * Constructs an IncrementalLexer and tokenizes the initial text.
+     * @param text The initial source code.
+     * @throws LexerException If tokenization fails.
+     */
+    public IncrementalLexer(CharSequence text) {
+        this(text, new SymbolTable());
+    }
+
+    /**
+     * Constructs an IncrementalLexer and tokenizes the initial text.
+     * @param text The initial source code.
+     * @param symbols The symbol table to intern identifier and keyword text into.
+     * @throws LexerException If tokenization fails.
+     */
+    public IncrementalLexer(CharSequence text, SymbolTable symbols) {
+        this.text = new GapText(text);
+        this.tokens = new Lexer(this.text, symbols).tokenizeToBuffer();
+    }
+
+    /**
+     * Applies an edit to the text and re-lexes the affected range.
+     * If tokenization fails the lexer is left in an undefined state.
+     * @param offset The offset of the first replaced character.
+     * @param removedLength The number of characters replaced.
+     * @param inserted The replacement text.
+     * @return The range of tokens that changed.
+     * @throws LexerException If tokenization fails.
+     */
+    public Change edit(int offset, int removedLength, CharSequence inserted) {
+        int oldEditEnd = offset + removedLength;
+        int newEditEnd = offset + inserted.length();
+        int keep = restartIndex(offset);
+        // Tokens past the edit are stored relative to the end of the text, so editing shifts them.
+        int after = firstStartAtOrAfter(oldEditEnd);
+        tokens.moveGap(after);
+        text.replace(offset, removedLength, inserted);
+        if (closesComment(offset, newEditEnd)) {
+            keep = firstUnclosedComment(keep);
+        }
+
+        int position = keep == 0 ? 0 : tokens.end(keep - 1);
+        Lexer lexer = new Lexer(text, tokens.getSymbols(), position, keep == 0 ? 1 : tokens.line(keep - 1));
+        TokenBuffer middle = new TokenBuffer(text, tokens.getSymbols(), 16);
+        int resume = after;
+        while (true) {
+            while (resume < tokens.size() && tokens.start(resume) < position) {
+                resume++;
+            }
+            if (resume < tokens.size() && tokens.start(resume) == position) {
+                tokens.shiftTailLines(lexer.getLine() - tokens.line(resume));
+                break;
+            }
+            if (position == text.length()) {
+                break;
+            }
+            lexer.scan(middle, position + 1);
+            position = lexer.getPosition();
+        }
+
+        // Tokens that end before the edit and were re-lexed unchanged are not reported. One the
+        // edit falls inside can keep its kind, start and length while its text changes.
+        int same = 0;
+        while (same < middle.size() && keep + same < after
+                && middle.end(same) <= offset
+                && middle.kind(same) == tokens.kind(keep + same)
+                && middle.start(same) == tokens.start(keep + same)
+                && middle.length(same) == tokens.length(keep + same)) {
+            same++;
+        }
+        tokens.replace(keep, resume, middle);
+        return new Change(keep + same, resume, keep + middle.size());
+    }
+
+    /**
+     * Gets the tokens of the current text.
+     * @return The token buffer, updated in place by each edit.
+     */
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Gets the current text.
+     * @return The text, updated in place by each edit.
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    // Index of the first token that must be re-lexed: the one after the last token starting before the edited line.
+    private int restartIndex(int offset) {
+        if (offset < 0 || offset > text.length()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + text.length());
+        }
+        int lineStart = offset;
+        while (lineStart > 0 && text.charAt(lineStart - 1) != '\n') {
+            lineStart--;
+        }
+        return firstStartAtOrAfter(lineStart);
+    }
+
+    private int firstStartAtOrAfter(int offset) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.start(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Whether the edited text has a comment terminator overlapping the inserted range or its seams.
+    private boolean closesComment(int from, int to) {
+        for (int i = Math.max(0, from - 2); i <= to && i + 3 <= text.length(); i++) {
+            if (text.charAt(i) == '~' && text.charAt(i + 1) == '*' && text.charAt(i + 2) == '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Index of the first unterminated "/*~" among the first limit tokens, or limit if there is none.
+    private int firstUnclosedComment(int limit) {
+        for (int i = 0; i + 2 < limit; i++) {
+            int start = tokens.start(i);
+            if (tokens.type(i) == TokenType.OPERATOR && tokens.length(i) == 1 && text.charAt(start) == '/'
+                    && tokens.start(i + 1) == start + 1 && text.charAt(start + 1) == '*'
+                    && tokens.start(i + 2) == start + 2 && text.charAt(start + 2) == '~') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * The range of tokens changed by an edit: tokens [getFirstChanged(), getOldEnd()) before
+     * the edit were replaced by tokens [getFirstChanged(), getNewEnd()) after it. The other
+     * tokens are unchanged, apart from the offsets and lines of those after the edit.
+     */
+    public static final class Change {
+        private final int firstChanged;
+        private final int oldEnd;
+        private final int newEnd;
+
+        private Change(int firstChanged, int oldEnd, int newEnd) {
+            this.firstChanged = firstChanged;
+            this.oldEnd = oldEnd;
+            this.newEnd = newEnd;
+        }
+
+        /**
+         * Gets the index of the first token that changed.
+         * @return The first changed token index.
+         */
+        public int getFirstChanged() {
+            return firstChanged;
+        }
+
+        /**
+         * Gets the end of the replaced range in the tokens before the edit.
+         * @return The index just past the last replaced token.
+         */
+        public int getOldEnd() {
+            return oldEnd;
+        }
+
+        /**
+         * Gets the end of the replacement range in the tokens after the edit.
+         * @return The index just past the last new token.
+         */
+        public int getNewEnd() {
+            return newEnd;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package LEXER;
+
+/**
+ * Reserved words of the language, looked up with a collision-free hash so that an
+ * identifier can be classified without building a String or walking a regex alternation.
+ * The hash seed is searched once when the class loads; the result is deterministic.
+ */
+final class KeywordTable {
+    /** The reserved words, in the order the KEYWORD pattern lists them. */
+    static final String[] KEYWORDS = {
+        "class", "function", "if", "else", "return", "int", "double", "char", "boolean", "void",
+        "const", "static", "enum", "import", "break", "continue", "for", "while", "public", "private",
+        "protected", "interface", "extends", "implements", "this", "super", "new", "abstract", "try", "catch",
+        "finally", "throw", "final", "true", "false", "string"
+    };
+
+    private static final int SLOTS = 128;
+    private static final int MAX_SEED = 1 << 20;
+    private static final int SEED;
+    // Keyword index + 1 per slot, 0 for an empty slot.
+    private static final int[] TABLE = new int[SLOTS];
+
+    static {
+        int seed = 1;
+        while (!tryBuild(seed)) {
+            if (++seed == MAX_SEED) {
+                throw new IllegalStateException("No perfect hash found for the keyword list");
+            }
+        }
+        SEED = seed;
+    }
+
+    private KeywordTable() {
+    }
+
+    /**
+     * Finds the keyword spelled by a range of text.
+     * @param text The text containing the word.
+     * @param start The offset of the word's first character.
+     * @param end The offset just past the word's last character.
+     * @return The index into KEYWORDS, or -1 if the word is not a keyword.
+     */
+    static int lookup(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length < 2) {
+            return -1;
+        }
+        int entry = TABLE[hash(SEED, length, text.charAt(start), text.charAt(start + 1), text.charAt(end - 1))];
+        if (entry == 0) {
+            return -1;
+        }
+        String keyword = KEYWORDS[entry - 1];
+        if (keyword.length() != length) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyword.charAt(i) != text.charAt(start + i)) {
+                return -1;
+            }
+        }
+        return entry - 1;
+    }
+
+    private static boolean tryBuild(int seed) {
+        java.util.Arrays.fill(TABLE, 0);
+        for (int k = 0; k < KEYWORDS.length; k++) {
+            String word = KEYWORDS[k];
+            int slot = hash(seed, word.length(), word.charAt(0), word.charAt(1), word.charAt(word.length() - 1));
+            if (TABLE[slot] != 0) {
+                return false;
+            }
+            TABLE[slot] = k + 1;
+        }
+        return true;
+    }
+
+    private static int hash(int seed, int length, char first, char second, char last) {
+        int h = seed * 0x9E3779B1 + length;
+        h = (h ^ first) * 0x85EBCA6B;
+        h = (h ^ second) * 0xC2B2AE35;
+        h = (h ^ last) * 0x27D4EB2F;
+        return (h ^ (h >>> 15)) & (SLOTS - 1);
+    }
+}
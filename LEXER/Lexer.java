@@ -3,29 +3,39 @@ package LEXER;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Lexer that tokenizes input source code and saves tokens to a file.
  * Tokens are formatted as <line,type,value> for SyntaxAnalyzer compatibility.
  * Ignores whitespace, newline, and comment tokens in the output.
+ * Matching happens in place on the input; tokens only record offsets into it.
  */
 public class Lexer {
-    private final String input;
+    private final CharSequence input;
+    private final SymbolTable symbols;
     private int currentPosition;
+    private int tokenStart;
     private int lineNumber;
-    private static final List<TokenDefinition> TOKEN_DEFINITIONS;
+    // Throughput counters to add each scan to, or null
+    private LexerMetrics metrics;
+    // Name of the input for flight recorder events, or null
+    private String sourceName;
+    static final List<TokenDefinition> TOKEN_DEFINITIONS;
+    static final List<TokenDefinition> SCANNED_DEFINITIONS;
+    static final TokenDfa DFA;
 
     static {
         TOKEN_DEFINITIONS = List.of(
             new TokenDefinition(TokenType.MULTI_LINE_COMMENT, "/\\*~[\\s\\S]*?~\\*/"),
             new TokenDefinition(TokenType.SINGLE_LINE_COMMENT, "#[^\\n]*"),
             new TokenDefinition(TokenType.KEYWORD, 
-                "\\b(class|function|if|else|return|int|double|char|boolean|void|const|static|enum|import|break|continue|for|while|public|private|protected|interface|extends|implements|this|super|new|abstract|try|catch|finally|throw|final|true|false|string)\\b"),
+                "\\b(" + String.join("|", KeywordTable.KEYWORDS) + ")\\b"),
             new TokenDefinition(TokenType.BOOLEAN_CONSTANT, "\\b(true|false)\\b"),
             new TokenDefinition(TokenType.OPERATOR, 
                 "(\\<\\<\\=|\\>\\>\\=|\\<\\<|\\>\\>|\\<\\=\\>|\\<\\>|\\=\\>|\\+\\+|\\-\\-|\\=\\=|\\!\\=|\\<\\=|\\>\\=|\\&\\&|\\|\\||\\+|\\-|\\*|\\/|\\%|\\=|\\<|\\>|\\!)"),
@@ -40,16 +50,69 @@ public class Lexer {
             new TokenDefinition(TokenType.WHITESPACE, "[ \\t\\r]+"),
             new TokenDefinition(TokenType.INVALID, ".")
         );
+        // KEYWORD and BOOLEAN_CONSTANT only match words that IDENTIFIER matches at the same length,
+        // so the DFA scans an identifier and KeywordTable decides whether it is reserved.
+        SCANNED_DEFINITIONS = TOKEN_DEFINITIONS.stream()
+            .filter(d -> d.type != TokenType.KEYWORD && d.type != TokenType.BOOLEAN_CONSTANT)
+            .collect(Collectors.toUnmodifiableList());
+        // All definitions are scanned together; list order still breaks ties between equal-length matches.
+        DFA = TokenDfa.compile(SCANNED_DEFINITIONS);
     }
 
     /**
      * Constructs a Lexer with the given input source code.
+     * The input is not copied, so it must not change while tokens refer to it.
      * @param input The source code to tokenize.
      */
-    public Lexer(String input) {
+    public Lexer(CharSequence input) {
+        this(input, new SymbolTable());
+    }
+
+    /**
+     * Constructs a Lexer that interns identifiers into an existing symbol table.
+     * @param input The source code to tokenize.
+     * @param symbols The symbol table to intern identifier and keyword text into.
+     */
+    public Lexer(CharSequence input, SymbolTable symbols) {
+        this(input, symbols, 0, 1);
+    }
+
+    /**
+     * Constructs a Lexer that starts at a token boundary inside the input.
+     * @param input The source code to tokenize.
+     * @param symbols The symbol table to intern identifier and keyword text into.
+     * @param position The offset to start scanning at.
+     * @param line The line number at that offset.
+     */
+    Lexer(CharSequence input, SymbolTable symbols, int position, int line) {
         this.input = input;
-        this.currentPosition = 0;
-        this.lineNumber = 1;
+        this.symbols = symbols;
+        this.currentPosition = position;
+        this.lineNumber = line;
+    }
+
+    /**
+     * Sets the counters each scan adds its token counts and time to.
+     * @param metrics The metrics, possibly shared with other lexers, or null to count nothing.
+     */
+    public void setMetrics(LexerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the counters scans add to.
+     * @return The metrics, or null.
+     */
+    public LexerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Names the input, usually by its file, for the flight recorder events of this lexer.
+     * @param sourceName The name, or null.
+     */
+    public void setSourceName(String sourceName) {
+        this.sourceName = sourceName;
     }
 
     /**
@@ -59,63 +122,150 @@ public class Lexer {
      * @throws LexerException If tokenization fails.
      */
     public List<Token> tokenize() {
-        List<Token> tokens = new ArrayList<>();
-        while (currentPosition < input.length()) {
-            int startLine = lineNumber;
-            Token token = nextToken();
-            if (token == null) {
+        return tokenizeToBuffer().toList();
+    }
+
+    /**
+     * Tokenizes the input into a packed TokenBuffer.
+     * Excludes whitespace, newline, and comment tokens.
+     * @return The token buffer.
+     * @throws LexerException If tokenization fails.
+     */
+    public TokenBuffer tokenizeToBuffer() {
+        LexerEvents.Lex event = new LexerEvents.Lex();
+        event.begin();
+        // Rough guess of one significant token per six characters avoids most regrowth.
+        TokenBuffer tokens = new TokenBuffer(input, symbols, input.length() / 6 + 16);
+        int start = currentPosition;
+        String outcome = "success";
+        try {
+            scan(tokens, input.length());
+        } catch (LexerException e) {
+            outcome = e.getMessage();
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.file = sourceName;
+                event.bytes = currentPosition - start;
+                event.tokens = tokens.size();
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Scans every token that starts before the given offset into a buffer.
+     * The last token may end past the offset.
+     * @param tokens The buffer to append significant tokens to.
+     * @param stop The offset at which no further token is started.
+     * @throws LexerException If tokenization fails.
+     */
+    void scan(TokenBuffer tokens, int stop) {
+        long[] tally = metrics != null ? LexerMetrics.tally() : null;
+        long started = tally != null ? System.nanoTime() : 0;
+        int from = currentPosition;
+        while (currentPosition < stop) {
+            TokenType type = nextToken();
+            if (type == null) {
                 throw new LexerException("Failed to tokenize at line " + lineNumber);
             }
-            if (token.getType() == TokenType.NEWLINE) {
-                lineNumber++;
+            if (tally != null) {
+                LexerMetrics.count(tally, type, currentPosition - tokenStart);
             }
-            if (token.getType() != TokenType.WHITESPACE && 
-                token.getType() != TokenType.NEWLINE && 
-                token.getType() != TokenType.SINGLE_LINE_COMMENT && 
-                token.getType() != TokenType.MULTI_LINE_COMMENT) {
-                tokens.add(new Token(token.getType(), token.getValue(), startLine));
+            if (type == TokenType.NEWLINE) {
+                lineNumber++;
+            } else if (isSymbol(type)) {
+                tokens.add(type, tokenStart, currentPosition - tokenStart, lineNumber,
+                    symbols.intern(input, tokenStart, currentPosition));
+            } else if (!isSkipped(type)) {
+                tokens.add(type, tokenStart, currentPosition - tokenStart, lineNumber);
             }
         }
-        // Add end marker token at the end
-        
-        return tokens;
+        if (tally != null) {
+            metrics.add(tally, currentPosition - from, System.nanoTime() - started);
+        }
     }
 
     /**
-     * Retrieves the next token from the input.
-     * @return The next token, or null if at end of input.
+     * Gets the offset where the next token starts.
+     * @return The current position.
      */
-    private Token nextToken() {
+    int getPosition() {
+        return currentPosition;
+    }
+
+    /**
+     * Gets the line number at the current position.
+     * @return The current line number.
+     */
+    int getLine() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the symbol table identifiers and keywords are interned into.
+     * @return The symbol table.
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Gets the token type of a DFA match, telling keywords apart from identifiers.
+     * @param match A successful match from DFA.
+     * @param text The scanned text.
+     * @param start The offset where the match starts.
+     * @return The token type.
+     */
+    static TokenType typeOf(long match, CharSequence text, int start) {
+        TokenType type = SCANNED_DEFINITIONS.get(TokenDfa.definition(match)).type;
+        if (type == TokenType.IDENTIFIER && KeywordTable.lookup(text, start, start + TokenDfa.length(match)) >= 0) {
+            return TokenType.KEYWORD;
+        }
+        return type;
+    }
+
+    /**
+     * Checks whether tokens of the given type are interned in the symbol table.
+     * @param type The token type.
+     * @return True for identifier and keyword tokens.
+     */
+    static boolean isSymbol(TokenType type) {
+        return type == TokenType.IDENTIFIER || type == TokenType.KEYWORD;
+    }
+
+    /**
+     * Checks whether tokens of the given type are left out of the token stream.
+     * @param type The token type.
+     * @return True for whitespace, newline, and comment tokens.
+     */
+    static boolean isSkipped(TokenType type) {
+        return type == TokenType.WHITESPACE ||
+               type == TokenType.NEWLINE ||
+               type == TokenType.SINGLE_LINE_COMMENT ||
+               type == TokenType.MULTI_LINE_COMMENT;
+    }
+
+    /**
+     * Scans the next token in place and advances past it.
+     * The token spans input[tokenStart, currentPosition).
+     * @return The type of the scanned token, or null if at end of input.
+     */
+    private TokenType nextToken() {
         if (currentPosition >= input.length()) {
             return null;
         }
-        String remainingInput = input.substring(currentPosition);
-        Token bestToken = null;
-        int bestLength = 0;
-
-        for (TokenDefinition definition : TOKEN_DEFINITIONS) {
-            // Remove ^ anchor for MULTI_LINE_COMMENT to ensure full match
-            String patternStr = definition.type == TokenType.MULTI_LINE_COMMENT ? 
-                definition.pattern.pattern() : "^" + definition.pattern.pattern();
-            Pattern pattern = Pattern.compile(patternStr);
-            Matcher matcher = pattern.matcher(remainingInput);
-            if (matcher.lookingAt()) { // Use lookingAt() to match at start
-                String value = matcher.group();
-                int length = value.length();
-                if (length > bestLength) {
-                    bestLength = length;
-                    bestToken = new Token(definition.type, value, lineNumber);
-                }
-            }
-        }
-
-        if (bestToken != null) {
-            currentPosition += bestLength;
-            return bestToken;
+        tokenStart = currentPosition;
+        long match = DFA.match(input, currentPosition, input.length());
+        if (match != TokenDfa.NO_MATCH) {
+            currentPosition += TokenDfa.length(match);
+            return typeOf(match, input, tokenStart);
         }
 
         currentPosition++;
-        return new Token(TokenType.INVALID, remainingInput.substring(0, 1), lineNumber);
+        return TokenType.INVALID;
     }
 
     /**
@@ -149,29 +299,135 @@ public class Lexer {
      * @throws IOException If file writing fails.
      */
     private static void saveTokensToFile(List<Token> tokens, String filePath) throws IOException {
+        LexerEvents.SaveTokens event = new LexerEvents.SaveTokens();
+        event.begin();
+        String outcome = "success";
         try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filePath))) {
             for (Token token : tokens) {
                 writer.write(String.format("<%d,%s,%s>", token.getLine(), tokenTypeToString(token.getType()), token.getValue()));
                 writer.newLine();
             }
+        } catch (IOException e) {
+            outcome = e.toString();
+            throw e;
+        } finally {
+            commit(event, Paths.get(filePath), "text", tokens.size(), outcome);
+        }
+    }
+
+    /**
+     * Fills in and commits a SaveTokens event, if it is enabled.
+     * @param event The event, begun before writing.
+     * @param path The file written.
+     * @param format binary or text.
+     * @param tokens The number of tokens written.
+     * @param outcome success, or the error that stopped the write.
+     */
+    static void commit(LexerEvents.SaveTokens event, Path path, String format, long tokens, String outcome) {
+        if (event.shouldCommit()) {
+            event.file = path.toString();
+            event.format = format;
+            try {
+                event.bytes = Files.size(path);
+            } catch (IOException e) {
+                event.bytes = -1;
+            }
+            event.tokens = tokens;
+            event.outcome = outcome;
+            event.commit();
         }
     }
 
     /**
-     * Main method to tokenize a file and save tokens to tokens.txt.
-     * @param args Command "_line arguments (input file path).
+     * Lexes a file in bounded memory and writes each token to a file as it is produced.
+     * @param inputPath The source file.
+     * @param filePath The output file path.
+     * @param text True to write the <line,type,value> text format instead of a binary token file.
+     * @return The number of tokens written.
+     * @throws IOException If reading or writing fails.
+     */
+    private static long streamTokensToFile(Path inputPath, String filePath, boolean text) throws IOException {
+        LexerEvents.SaveTokens event = new LexerEvents.SaveTokens();
+        event.begin();
+        String outcome = "success";
+        long count = 0;
+        try (StreamingLexer lexer = StreamingLexer.open(inputPath)) {
+            if (text) {
+                try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filePath))) {
+                    Token token;
+                    while ((token = lexer.next()) != null) {
+                        writer.write(String.format("<%d,%s,%s>", token.getLine(), tokenTypeToString(token.getType()), token.getValue()));
+                        writer.newLine();
+                        count++;
+                    }
+                }
+            } else {
+                try (TokenFile.Writer writer = new TokenFile.Writer(Paths.get(filePath))) {
+                    try {
+                        Token token;
+                        while ((token = lexer.next()) != null) {
+                            writer.add(token.getType(), token.getLine(), token.getValue());
+                            count++;
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        writer.abort(); // A lexer error must not leave a valid file of the tokens before it
+                        throw e;
+                    }
+                }
+            }
+        } catch (IOException | LexerException e) {
+            outcome = e.toString();
+            throw e;
+        } finally {
+            commit(event, Paths.get(filePath), text ? "text" : "binary", count, outcome);
+        }
+        return count;
+    }
+
+    /**
+     * Main method to tokenize a file and save tokens to tokens.bin.
+     * With --text the tokens are exported to tokens.txt in the <line,type,value> format instead.
+     * With --stream the file is lexed in bounded memory and tokens are not echoed.
+     * With --metrics=FILE lexing throughput by token type is written to FILE, as JSON if its
+     * name ends in .json and in the Prometheus text format otherwise; not with --stream.
+     * @param args Command "_line arguments ([--stream] [--text] [--metrics=FILE] input file path).
      */
     public static void main(String[] args) {
+        boolean stream = false;
+        boolean text = false;
+        Path metricsPath = null;
+        while (args.length > 0 && args[0].startsWith("--")) {
+            stream |= args[0].equals("--stream");
+            text |= args[0].equals("--text");
+            if (args[0].startsWith("--metrics=")) {
+                metricsPath = Paths.get(args[0].substring("--metrics=".length()));
+            }
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
         String inputFilePath = args.length > 0 ? args[0] : "input.txt";
-        String outputFilePath = "tokens.txt";
+        String outputFilePath = text ? "tokens.txt" : "tokens.bin";
 
         try {
+            if (stream) {
+                long count = streamTokensToFile(Paths.get(inputFilePath), outputFilePath, text);
+                System.out.println(count + " tokens successfully written to " + outputFilePath);
+                return;
+            }
             String fileContent = Files.readString(Paths.get(inputFilePath));
             Lexer lexer = new Lexer(fileContent);
-            List<Token> tokens = lexer.tokenize();
+            lexer.setSourceName(inputFilePath);
+            if (metricsPath != null) {
+                lexer.setMetrics(new LexerMetrics());
+            }
+            TokenBuffer buffer = lexer.tokenizeToBuffer();
+            List<Token> tokens = buffer.toList();
 
             // Save tokens to file
-            saveTokensToFile(tokens, outputFilePath);
+            if (text) {
+                saveTokensToFile(tokens, outputFilePath);
+            } else {
+                TokenFile.write(buffer, Paths.get(outputFilePath));
+            }
 
             // Print tokens to console for verification
             for (Token token : tokens) {
@@ -179,6 +435,11 @@ public class Lexer {
             }
 
             System.out.println("Tokens successfully written to " + outputFilePath);
+            if (metricsPath != null) {
+                MetricsWriter metrics = new MetricsWriter(MetricsWriter.Format.of(metricsPath));
+                lexer.getMetrics().export(metrics);
+                metrics.write(metricsPath);
+            }
         } catch (IOException e) {
             System.err.println("Error reading/writing file: " + e.getMessage());
         } catch (LexerException e) {
@@ -0,0 +1,76 @@
+package LEXER;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the lexer. They are disabled by default, so a disabled event
+ * costs a check of shouldCommit(). Enable them in a recording, for example with
+ * {@code -XX:StartFlightRecording:+compiler.Lex#enabled=true,+compiler.SaveTokens#enabled=true},
+ * to see lexing next to the JVM's GC and allocation events on the same timeline.
+ */
+final class LexerEvents {
+    private LexerEvents() {
+    }
+
+    /** One run of Lexer.tokenizeToBuffer(), which tokenize() also goes through. */
+    @Name("compiler.Lex")
+    @Label("Lex")
+    @Category({"Compiler", "Lexer"})
+    @Description("Source text tokenized by a Lexer")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Lex extends Event {
+        @Label("File")
+        @Description("Name of the source, or null if the Lexer was not given one")
+        String file;
+
+        @Label("Bytes")
+        @Description("Chars of source text lexed")
+        @DataAmount
+        long bytes;
+
+        @Label("Tokens")
+        @Description("Tokens produced, not counting whitespace, newlines and comments")
+        long tokens;
+
+        @Label("Outcome")
+        @Description("success, or the error that stopped the lexer")
+        String outcome;
+    }
+
+    /** Tokens written to a file for the SyntaxAnalyzer. */
+    @Name("compiler.SaveTokens")
+    @Label("Save Tokens")
+    @Category({"Compiler", "Lexer"})
+    @Description("Tokens written to a token file")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class SaveTokens extends Event {
+        @Label("File")
+        @Description("The token file written")
+        String file;
+
+        @Label("Format")
+        @Description("binary for a TokenFile, text for <line,type,value> lines")
+        String format;
+
+        @Label("Bytes")
+        @Description("Size of the file written")
+        @DataAmount
+        long bytes;
+
+        @Label("Tokens")
+        long tokens;
+
+        @Label("Outcome")
+        @Description("success, or the error that stopped the write")
+        String outcome;
+    }
+}
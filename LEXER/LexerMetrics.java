@@ -0,0 +1,129 @@
+package LEXER;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lexing throughput counters, shared by any number of lexers on any threads.
+ * A Lexer given these metrics tallies its tokens locally while scanning and adds the totals
+ * here once per scan, so the counters cost nothing per token and never lock.
+ * Sizes are in chars of the source text, reported as bytes.
+ */
+public final class LexerMetrics {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder[] tokens = adders(TYPES.length);
+    private final LongAdder[] tokenChars = adders(TYPES.length);
+
+    /**
+     * Allocates the local tally a scan fills in before add().
+     * @return Token counts by TokenType ordinal, followed by their sizes.
+     */
+    static long[] tally() {
+        return new long[TYPES.length * 2];
+    }
+
+    /**
+     * Counts a token in a tally.
+     * @param tally A tally from tally().
+     * @param type The token type.
+     * @param length The token's length.
+     */
+    static void count(long[] tally, TokenType type, int length) {
+        tally[type.ordinal()]++;
+        tally[TYPES.length + type.ordinal()] += length;
+    }
+
+    /**
+     * Adds one scan.
+     * @param tally The scan's tally, whitespace, newlines and comments included.
+     * @param length The number of chars scanned.
+     * @param elapsed The time the scan took, in nanoseconds.
+     */
+    void add(long[] tally, int length, long elapsed) {
+        scans.increment();
+        nanos.add(elapsed);
+        chars.add(length);
+        for (int i = 0; i < TYPES.length; i++) {
+            if (tally[i] != 0) {
+                tokens[i].add(tally[i]);
+                tokenChars[i].add(tally[TYPES.length + i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of scans recorded.
+     * @return The scan count.
+     */
+    public long scans() {
+        return scans.sum();
+    }
+
+    /**
+     * Gets the time spent scanning.
+     * @return The total in nanoseconds.
+     */
+    public long nanos() {
+        return nanos.sum();
+    }
+
+    /**
+     * Gets the number of tokens of a type scanned.
+     * @param type The token type.
+     * @return The token count.
+     */
+    public long tokens(TokenType type) {
+        return tokens[type.ordinal()].sum();
+    }
+
+    /**
+     * Gets the size of the tokens of a type scanned.
+     * @param type The token type.
+     * @return The total length in chars.
+     */
+    public long bytes(TokenType type) {
+        return tokenChars[type.ordinal()].sum();
+    }
+
+    /**
+     * Writes the counters, plus tokens and bytes per second by token type over the time spent
+     * scanning. The sums are read one by one, so a snapshot taken while lexers run may be
+     * slightly inconsistent.
+     * @param out The writer.
+     */
+    public void export(MetricsWriter out) {
+        double seconds = nanos.sum() / 1e9;
+        out.family("lexer_scans_total", "counter", "Inputs or chunks lexed").sample(scans.sum());
+        out.family("lexer_seconds_total", "counter", "Time spent lexing").sample(seconds);
+        out.family("lexer_bytes_total", "counter", "Source chars lexed").sample(chars.sum());
+        out.family("lexer_bytes_per_second", "gauge", "Source chars lexed per second of lexing")
+            .sample(chars.sum() / seconds);
+        out.family("lexer_type_tokens_total", "counter", "Tokens lexed, by token type");
+        for (TokenType type : TYPES) {
+            out.sample("type", type.name(), tokens[type.ordinal()].sum());
+        }
+        out.family("lexer_type_bytes_total", "counter", "Chars in tokens lexed, by token type");
+        for (TokenType type : TYPES) {
+            out.sample("type", type.name(), tokenChars[type.ordinal()].sum());
+        }
+        out.family("lexer_type_tokens_per_second", "gauge", "Tokens lexed per second of lexing, by token type");
+        for (TokenType type : TYPES) {
+            out.sample("type", type.name(), tokens[type.ordinal()].sum() / seconds);
+        }
+        out.family("lexer_type_bytes_per_second", "gauge", "Chars in tokens lexed per second of lexing, by token type");
+        for (TokenType type : TYPES) {
+            out.sample("type", type.name(), tokenChars[type.ordinal()].sum() / seconds);
+        }
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
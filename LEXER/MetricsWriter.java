@@ -0,0 +1,163 @@
+package LEXER;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Formats counters and gauges as a Prometheus text exposition file or as a JSON snapshot.
+ * Metrics are written as families: family() starts one, and the sample() calls after it add
+ * its values, each with at most one label. In JSON a family is a member of the top-level object
+ * holding its type, help text and samples.
+ */
+public final class MetricsWriter {
+    /** Output format. */
+    public enum Format {
+        /** Prometheus text exposition format. */
+        PROMETHEUS,
+        /** One JSON object keyed by metric name. */
+        JSON;
+
+        /**
+         * Picks the format from a file name: JSON for names ending in .json, else Prometheus.
+         * @param path The output file.
+         * @return The format.
+         */
+        public static Format of(Path path) {
+            return path.getFileName().toString().endsWith(".json") ? JSON : PROMETHEUS;
+        }
+    }
+
+    private final Format format;
+    private final StringBuilder sb = new StringBuilder();
+    private String family;
+    private int samples;
+
+    /**
+     * Constructs an empty MetricsWriter.
+     * @param format The output format.
+     */
+    public MetricsWriter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Starts a metric family.
+     * @param name The metric name, in Prometheus style such as lexer_tokens_total.
+     * @param type counter or gauge.
+     * @param help One line describing the metric.
+     * @return This writer.
+     */
+    public MetricsWriter family(String name, String type, String help) {
+        if (format == Format.PROMETHEUS) {
+            sb.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        } else {
+            endFamily();
+            sb.append(sb.length() == 0 ? "{\n" : ",\n");
+            sb.append("  ").append(quote(name)).append(": {\"type\": ").append(quote(type))
+                .append(", \"help\": ").append(quote(help)).append(", \"samples\": [");
+        }
+        family = name;
+        samples = 0;
+        return this;
+    }
+
+    /**
+     * Adds an unlabelled value to the current family.
+     * @param value The value.
+     * @return This writer.
+     */
+    public MetricsWriter sample(double value) {
+        return sample(null, null, value);
+    }
+
+    /**
+     * Adds a labelled value to the current family.
+     * @param label The label name, or null for none.
+     * @param labelValue The label value.
+     * @param value The value.
+     * @return This writer.
+     * @throws IllegalStateException If no family has been started.
+     */
+    public MetricsWriter sample(String label, String labelValue, double value) {
+        if (family == null) {
+            throw new IllegalStateException("Sample outside a metric family");
+        }
+        if (format == Format.PROMETHEUS) {
+            sb.append(family);
+            if (label != null) {
+                sb.append('{').append(label).append("=\"")
+                    .append(labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append("\"}");
+            }
+            sb.append(' ').append(number(value)).append('\n');
+        } else {
+            sb.append(samples == 0 ? "\n    {" : ",\n    {");
+            if (label != null) {
+                sb.append("\"labels\": {").append(quote(label)).append(": ").append(quote(labelValue)).append("}, ");
+            }
+            sb.append("\"value\": ").append(number(value)).append('}');
+        }
+        samples++;
+        return this;
+    }
+
+    /**
+     * Gets the formatted metrics.
+     * @return The Prometheus text or the JSON document.
+     */
+    @Override
+    public String toString() {
+        if (format == Format.PROMETHEUS) {
+            return sb.toString();
+        }
+        if (sb.length() == 0) {
+            return "{}\n";
+        }
+        return sb + (samples == 0 ? "]}" : "\n  ]}") + "\n}\n";
+    }
+
+    /**
+     * Writes the formatted metrics to a file, replacing it.
+     * @param path The output file.
+     * @throws IOException If writing fails.
+     */
+    public void write(Path path) throws IOException {
+        Files.writeString(path, toString(), StandardCharsets.UTF_8);
+    }
+
+    // Closes the JSON samples array of the previous family
+    private void endFamily() {
+        if (family != null) {
+            sb.append(samples == 0 ? "]}" : "\n  ]}");
+        }
+    }
+
+    // Whole numbers print without a fraction so counters read as integers; NaN and infinities,
+    // which neither JSON nor a rate of zero elapsed time should carry, print as 0
+    private static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "0";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String quote(String s) {
+        StringBuilder q = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                q.append('\\').append(c);
+            } else if (c < ' ') {
+                q.append(String.format("\\u%04x", (int) c));
+            } else {
+                q.append(c);
+            }
+        }
+        return q.append('"').toString();
+    }
+}
@@ -0,0 +1,170 @@
+package LEXER;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lexes large inputs in parallel and produces exactly the tokens, lines and symbol ids
+ * of a sequential Lexer.tokenizeToBuffer().
+ *
+ * The input is cut into chunks that start right after a newline, and every chunk is
+ * lexed on the pool as if it began at a token boundary. Stitching then walks the chunks
+ * in order: a chunk whose start is where the previous chunk really ended is taken as is;
+ * otherwise (the previous chunk ended inside a multi-line comment, for example) the
+ * input is re-lexed sequentially until it reaches one of the chunk's token starts,
+ * from which point the chunk's tokens are known to be right.
+ */
+public final class ParallelLexer {
+    /** Chunks smaller than this are not worth a separate task. */
+    public static final int MIN_CHUNK = 64 * 1024;
+
+    private ParallelLexer() {
+    }
+
+    /**
+     * Tokenizes the input on the common pool.
+     * @param input The source code to tokenize.
+     * @return The token buffer, with identifiers interned into a new symbol table.
+     * @throws LexerException If tokenization fails.
+     */
+    public static TokenBuffer tokenize(CharSequence input) {
+        return tokenize(input, new SymbolTable(), ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * Tokenizes the input on the given pool.
+     * @param input The source code to tokenize.
+     * @param symbols The symbol table to intern identifier and keyword text into.
+     * @param pool The pool to lex chunks on.
+     * @param chunkSize The target chunk size in characters, or 0 to pick one from the pool size.
+     * @return The token buffer.
+     * @throws LexerException If tokenization fails.
+     */
+    public static TokenBuffer tokenize(CharSequence input, SymbolTable symbols, ForkJoinPool pool, int chunkSize) {
+        int length = input.length();
+        if (chunkSize <= 0) {
+            if (pool.getParallelism() <= 1) {
+                return new Lexer(input, symbols).tokenizeToBuffer();
+            }
+            chunkSize = Math.max(MIN_CHUNK, length / (pool.getParallelism() * 4) + 1);
+        }
+        if (length <= chunkSize) {
+            return new Lexer(input, symbols).tokenizeToBuffer();
+        }
+
+        List<Integer> starts = splitPoints(input, chunkSize);
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int stop = i + 1 < starts.size() ? starts.get(i + 1) : length;
+            tasks.add(pool.submit(() -> Chunk.lex(input, start, stop)));
+        }
+
+        TokenBuffer tokens = new TokenBuffer(input, symbols, length / 6 + 16);
+        int position = 0;
+        int line = 1;
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            int first = 0;
+            while (true) {
+                if (position == chunk.start) {
+                    first = 0;
+                    break;
+                }
+                while (first < chunk.tokens.size() && chunk.tokens.start(first) < position) {
+                    first++;
+                }
+                if (first < chunk.tokens.size() && chunk.tokens.start(first) == position) {
+                    break;
+                }
+                if (position >= chunk.end) {
+                    first = -1;
+                    break;
+                }
+                // Not in step with the chunk yet: lex one more token sequentially.
+                Lexer lexer = new Lexer(input, symbols, position, line);
+                lexer.scan(tokens, position + 1);
+                position = lexer.getPosition();
+                line = lexer.getLine();
+            }
+            if (first < 0) {
+                continue;
+            }
+            int offset = first < chunk.tokens.size() && position != chunk.start
+                ? line - chunk.tokens.line(first)
+                : line - 1;
+            chunk.appendTo(tokens, first, offset);
+            position = chunk.end;
+            line = chunk.endLine + offset;
+        }
+        return tokens;
+    }
+
+    // Chunk starts: 0, then the offset after the first newline at or past each multiple of chunkSize.
+    private static List<Integer> splitPoints(CharSequence input, int chunkSize) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        int next = chunkSize;
+        while (next < input.length()) {
+            int newline = next;
+            while (newline < input.length() && input.charAt(newline) != '\n') {
+                newline++;
+            }
+            if (newline + 1 >= input.length()) {
+                break;
+            }
+            starts.add(newline + 1);
+            next = newline + 1 + chunkSize;
+        }
+        return starts;
+    }
+
+    /**
+     * Speculative lexing result for one chunk, with lines counted from 1 at the chunk start.
+     */
+    private static final class Chunk {
+        final int start;
+        final TokenBuffer tokens;
+        final int end;
+        final int endLine;
+
+        private Chunk(int start, TokenBuffer tokens, int end, int endLine) {
+            this.start = start;
+            this.tokens = tokens;
+            this.end = end;
+            this.endLine = endLine;
+        }
+
+        static Chunk lex(CharSequence input, int start, int stop) {
+            SymbolTable symbols = new SymbolTable();
+            Lexer lexer = new Lexer(input, symbols, start, 1);
+            TokenBuffer tokens = new TokenBuffer(input, symbols, (stop - start) / 6 + 16);
+            lexer.scan(tokens, stop);
+            return new Chunk(start, tokens, lexer.getPosition(), lexer.getLine());
+        }
+
+        // Copies tokens from index first on, shifting lines and mapping symbols to the shared table.
+        void appendTo(TokenBuffer out, int first, int lineOffset) {
+            SymbolTable local = tokens.getSymbols();
+            SymbolTable shared = out.getSymbols();
+            int[] remap = new int[local.size()];
+            for (int id = 0; id < remap.length; id++) {
+                // Keywords have the same ids in every table.
+                remap[id] = SymbolTable.isKeyword(id) ? id : -1;
+            }
+            for (int i = first; i < tokens.size(); i++) {
+                int symbol = tokens.symbol(i);
+                if (symbol >= 0) {
+                    if (remap[symbol] < 0) {
+                        String name = local.name(symbol);
+                        remap[symbol] = shared.intern(name, 0, name.length());
+                    }
+                    symbol = remap[symbol];
+                }
+                out.add(tokens.type(i), tokens.start(i), tokens.length(i), tokens.line(i) + lineOffset, symbol);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package LEXER;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lexer that reads UTF-8 source from a channel or a memory-mapped file in fixed-size
+ * windows and emits tokens as it goes, so the whole input never has to be in memory.
+ * Produces the same tokens and line numbers as Lexer.tokenize().
+ * A token (or a failed longer match, such as an unterminated comment) that does not
+ * fit in the window makes the window grow to hold it; otherwise memory use is constant.
+ */
+public class StreamingLexer implements AutoCloseable {
+    /** Default number of characters kept in the text window. */
+    public static final int DEFAULT_WINDOW = 64 * 1024;
+    /** Default size of each memory-mapped region of a file. */
+    public static final int DEFAULT_REGION = 64 * 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final FileChannel file;
+    private final int regionSize;
+    private long regionStart;
+    private ByteBuffer bytes;
+    private boolean bytesExhausted;
+    private final CharsetDecoder decoder;
+    private char[] chars;
+    private CharBuffer text;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private int lineNumber = 1;
+    private final SymbolTable symbols = new SymbolTable();
+
+    /**
+     * Constructs a StreamingLexer that reads from a channel.
+     * @param channel The channel supplying UTF-8 encoded source code.
+     * @param windowSize The number of characters to keep in the text window.
+     */
+    public StreamingLexer(ReadableByteChannel channel, int windowSize) {
+        this(channel, null, 0, windowSize);
+        // Room for at least a few complete UTF-8 sequences.
+        this.bytes = ByteBuffer.allocate(Math.max(windowSize, 16));
+        this.bytes.flip();
+    }
+
+    private StreamingLexer(ReadableByteChannel channel, FileChannel file, int regionSize, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.channel = channel;
+        this.file = file;
+        this.regionSize = regionSize;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.chars = new char[windowSize];
+        this.text = CharBuffer.wrap(chars);
+    }
+
+    /**
+     * Opens a file and lexes it through successive memory-mapped regions.
+     * @param path The source file.
+     * @return A lexer positioned at the start of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static StreamingLexer open(Path path) throws IOException {
+        return open(path, DEFAULT_REGION, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Opens a file and lexes it through successive memory-mapped regions.
+     * @param path The source file.
+     * @param regionSize The number of bytes to map at a time.
+     * @param windowSize The number of characters to keep in the text window.
+     * @return A lexer positioned at the start of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static StreamingLexer open(Path path, int regionSize, int windowSize) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        StreamingLexer lexer = new StreamingLexer(null, file, Math.max(regionSize, 16), windowSize);
+        lexer.bytes = ByteBuffer.allocate(0);
+        return lexer;
+    }
+
+    /**
+     * Returns the next token, skipping whitespace, newline, and comment tokens.
+     * @return The next token, or null at end of input.
+     * @throws IOException If reading or decoding the input fails.
+     */
+    public Token next() throws IOException {
+        while (true) {
+            if (position == limit) {
+                if (endOfInput) {
+                    return null;
+                }
+                fill();
+                continue;
+            }
+            long match = Lexer.DFA.match(text, position, limit, endOfInput);
+            if (match == TokenDfa.NEED_INPUT) {
+                fill();
+                continue;
+            }
+            TokenType type;
+            int length;
+            if (match == TokenDfa.NO_MATCH) {
+                type = TokenType.INVALID;
+                length = 1;
+            } else {
+                type = Lexer.typeOf(match, text, position);
+                length = TokenDfa.length(match);
+            }
+            int start = position;
+            position += length;
+            if (type == TokenType.NEWLINE) {
+                lineNumber++;
+            } else if (Lexer.isSymbol(type)) {
+                int symbol = symbols.intern(text, start, position);
+                return new Token(type, null, 0, length, lineNumber, symbol, symbols.name(symbol));
+            } else if (!Lexer.isSkipped(type)) {
+                return new Token(type, new String(chars, start, length), lineNumber);
+            }
+        }
+    }
+
+    /**
+     * Gets the symbol table identifiers and keywords are interned into.
+     * @return The symbol table.
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Closes the underlying channel or file.
+     * @throws IOException If closing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    // Moves the unconsumed text to the front of the window and decodes more input after it.
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(chars, position, chars, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (chars.length - limit < 2) {
+            // The pending token is longer than the window; room for a surrogate pair is the minimum.
+            chars = Arrays.copyOf(chars, chars.length * 2);
+            text = CharBuffer.wrap(chars);
+        }
+        CharBuffer out = CharBuffer.wrap(chars, limit, chars.length - limit);
+        while (!endOfInput) {
+            if (!bytes.hasRemaining() && !bytesExhausted) {
+                readBytes();
+            }
+            CoderResult result = decoder.decode(bytes, out, bytesExhausted);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isOverflow()) {
+                break;
+            }
+            if (bytesExhausted) {
+                if (decoder.flush(out).isUnderflow()) {
+                    endOfInput = true;
+                }
+                break;
+            }
+            if (out.position() > limit) {
+                // Hand back what was decoded rather than waiting for a full window.
+                break;
+            }
+            readBytes();
+        }
+        limit = out.position();
+    }
+
+    // Refills the byte buffer, keeping any partial UTF-8 sequence left at its end.
+    private void readBytes() throws IOException {
+        if (file != null) {
+            regionStart += bytes.position();
+            long length = Math.min(regionSize, file.size() - regionStart);
+            bytes = file.map(FileChannel.MapMode.READ_ONLY, regionStart, length);
+            bytesExhausted = regionStart + length == file.size();
+            return;
+        }
+        bytes.compact();
+        int read = channel.read(bytes);
+        while (read == 0 && bytes.hasRemaining()) {
+            read = channel.read(bytes);
+        }
+        bytes.flip();
+        if (read < 0) {
+            bytesExhausted = true;
+        }
+    }
+}
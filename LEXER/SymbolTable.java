@@ -0,0 +1,123 @@
+package LEXER;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifier and keyword text into dense int ids, so that each distinct
+ * name is stored once and later stages can compare names by id.
+ * Keywords are pre-interned and always have ids 0 to KEYWORDS.length - 1.
+ * Not thread-safe; share one table only between lexers on the same thread.
+ */
+public class SymbolTable {
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+    // Open-addressing slots holding id + 1, 0 for empty.
+    private int[] slots = new int[512];
+    private int size;
+
+    /**
+     * Constructs a SymbolTable containing the keywords.
+     */
+    public SymbolTable() {
+        for (String keyword : KeywordTable.KEYWORDS) {
+            intern(keyword, 0, keyword.length());
+        }
+    }
+
+    /**
+     * Returns the id for a range of text, adding it to the table if it is new.
+     * @param text The text containing the name.
+     * @param start The offset of the name's first character.
+     * @param end The offset just past the name's last character.
+     * @return The symbol id.
+     */
+    public int intern(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return add(text.subSequence(start, end).toString(), hash, slot);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(names[id], text, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Gets the text of a symbol.
+     * @param id The symbol id.
+     * @return The interned name.
+     */
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Symbol id " + id + " out of bounds for size " + size);
+        }
+        return names[id];
+    }
+
+    /**
+     * Checks whether a symbol is a keyword.
+     * @param id The symbol id.
+     * @return True if the symbol is a reserved word.
+     */
+    public static boolean isKeyword(int id) {
+        return id >= 0 && id < KeywordTable.KEYWORDS.length;
+    }
+
+    /**
+     * Gets the number of distinct symbols, keywords included.
+     * @return The symbol count.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -2,11 +2,17 @@ package LEXER;
 
 /**
  * Represents a single token with type, value, and line number.
+ * A token points into the source it was scanned from by start/end offsets;
+ * its value string is only built the first time it is requested.
  */
 public class Token {
     private final TokenType type;
-    private final String value;
+    private final CharSequence source;
+    private final int start;
+    private final int end;
     private final int line;
+    private final int symbol;
+    private String value;
 
     /**
      * Constructs a Token with the given type, value, and line number.
@@ -15,9 +21,40 @@ public class Token {
      * @param line The line number where the token appears.
      */
     public Token(TokenType type, String value, int line) {
-        this.type = type;
+        this(type, value, 0, value.length(), line);
         this.value = value;
+    }
+
+    /**
+     * Constructs a Token that refers to a range of its source text.
+     * @param type The token type.
+     * @param source The text the token was scanned from.
+     * @param start The offset of the token's first character.
+     * @param end The offset just past the token's last character.
+     * @param line The line number where the token appears.
+     */
+    public Token(TokenType type, CharSequence source, int start, int end, int line) {
+        this(type, source, start, end, line, -1, null);
+    }
+
+    /**
+     * Constructs a Token for an interned identifier or keyword.
+     * @param type The token type.
+     * @param source The text the token was scanned from, or null if it is no longer available.
+     * @param start The offset of the token's first character.
+     * @param end The offset just past the token's last character.
+     * @param line The line number where the token appears.
+     * @param symbol The symbol id, or -1 if the token is not interned.
+     * @param value The token's lexeme if already known, or null to build it from the source.
+     */
+    Token(TokenType type, CharSequence source, int start, int end, int line, int symbol, String value) {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.end = end;
         this.line = line;
+        this.symbol = symbol;
+        this.value = value;
     }
 
     /**
@@ -29,11 +66,48 @@ public class Token {
     }
 
     /**
-     * Gets the token's value.
+     * Gets the token's value, building it from the source on first use.
      * @return The token's lexeme.
      */
     public String getValue() {
-        return value;
+        String v = value;
+        if (v == null) {
+            v = source.subSequence(start, end).toString();
+            value = v;
+        }
+        return v;
+    }
+
+    /**
+     * Gets the offset of the token's first character in its source.
+     * @return The start offset.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the offset just past the token's last character in its source.
+     * @return The end offset.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the length of the token's lexeme.
+     * @return The number of characters in the token.
+     */
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * Gets the id of the token's text in the lexer's symbol table.
+     * @return The symbol id, or -1 if the token is not an identifier or keyword.
+     */
+    public int getSymbol() {
+        return symbol;
     }
 
     /**
@@ -50,6 +124,6 @@ public class Token {
      */
     @Override
     public String toString() {
-        return String.format("%d\t%s\t%s", line, Lexer.tokenTypeToString(type), value);
+        return String.format("%d\t%s\t%s", line, Lexer.tokenTypeToString(type), getValue());
     }
-}
\ No newline at end of file
+}
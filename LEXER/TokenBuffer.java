@@ -0,0 +1,301 @@
+package LEXER;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packed token list that stores each token's kind, start offset, length, line and
+ * symbol id in parallel int arrays instead of one Token object per token.
+ * Values are read from the shared source text or symbol table on demand.
+ */
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final CharSequence source;
+    private final SymbolTable symbols;
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] symbolIds;
+    private int size;
+    // Tokens [0, gap) are stored at the front of the arrays and tokens [gap, size) at the back,
+    // with their starts relative to the end of the source and their lines relative to tailLine,
+    // so an edit in front of them shifts them without touching them. Buffers filled by add() have gap == size.
+    private int gap;
+    private int tailLine;
+
+    /**
+     * Constructs an empty TokenBuffer over the given source text.
+     * @param source The text the tokens refer to.
+     */
+    public TokenBuffer(CharSequence source) {
+        this(source, null, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty TokenBuffer with room for the given number of tokens.
+     * @param source The text the tokens refer to.
+     * @param symbols The symbol table the symbol ids refer to, or null if there are none.
+     * @param capacity The initial capacity.
+     */
+    public TokenBuffer(CharSequence source, SymbolTable symbols, int capacity) {
+        this.source = source;
+        this.symbols = symbols;
+        int initial = Math.max(capacity, 1);
+        this.kinds = new int[initial];
+        this.starts = new int[initial];
+        this.lengths = new int[initial];
+        this.lines = new int[initial];
+        this.symbolIds = new int[initial];
+    }
+
+    /**
+     * Appends a token.
+     * @param type The token type.
+     * @param start The offset of the token's first character.
+     * @param length The number of characters in the token.
+     * @param line The line number where the token appears.
+     */
+    public void add(TokenType type, int start, int length, int line) {
+        add(type, start, length, line, -1);
+    }
+
+    /**
+     * Appends an interned identifier or keyword token.
+     * @param type The token type.
+     * @param start The offset of the token's first character.
+     * @param length The number of characters in the token.
+     * @param line The line number where the token appears.
+     * @param symbol The symbol id, or -1 if the token is not interned.
+     */
+    public void add(TokenType type, int start, int length, int line, int symbol) {
+        if (gap != size) {
+            moveGap(size);
+        }
+        if (size == kinds.length) {
+            grow(size * 2);
+        }
+        kinds[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        symbolIds[size] = symbol;
+        size++;
+        gap = size;
+    }
+
+    /**
+     * Gets the number of tokens.
+     * @return The token count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the source text the tokens refer to.
+     * @return The source text.
+     */
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the symbol table the symbol ids refer to.
+     * @return The symbol table, or null if the tokens are not interned.
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Gets the kind of a token as a TokenType ordinal.
+     * @param index The token index.
+     * @return The kind code.
+     */
+    public int kind(int index) {
+        return kinds[slot(index)];
+    }
+
+    /**
+     * Gets the type of a token.
+     * @param index The token index.
+     * @return The token type.
+     */
+    public TokenType type(int index) {
+        return TYPES[kind(index)];
+    }
+
+    /**
+     * Gets the offset of a token's first character.
+     * @param index The token index.
+     * @return The start offset.
+     */
+    public int start(int index) {
+        int slot = slot(index);
+        return index < gap ? starts[slot] : starts[slot] + source.length();
+    }
+
+    /**
+     * Gets the number of characters in a token.
+     * @param index The token index.
+     * @return The token length.
+     */
+    public int length(int index) {
+        return lengths[slot(index)];
+    }
+
+    /**
+     * Gets the offset just past a token's last character.
+     * @param index The token index.
+     * @return The end offset.
+     */
+    public int end(int index) {
+        return start(index) + length(index);
+    }
+
+    /**
+     * Gets the line number of a token.
+     * @param index The token index.
+     * @return The line number.
+     */
+    public int line(int index) {
+        int slot = slot(index);
+        return index < gap ? lines[slot] : lines[slot] + tailLine;
+    }
+
+    /**
+     * Gets the symbol id of a token.
+     * @param index The token index.
+     * @return The symbol id, or -1 if the token is not an identifier or keyword.
+     */
+    public int symbol(int index) {
+        return symbolIds[slot(index)];
+    }
+
+    /**
+     * Gets the value string of a token, from the symbol table if it is interned.
+     * @param index The token index.
+     * @return The token's lexeme.
+     */
+    public String value(int index) {
+        int symbol = symbol(index);
+        if (symbol >= 0) {
+            return symbols.name(symbol);
+        }
+        int start = start(index);
+        return source.subSequence(start, start + length(index)).toString();
+    }
+
+    /**
+     * Creates a Token object for one entry.
+     * @param index The token index.
+     * @return A token that refers to the same source range.
+     */
+    public Token get(int index) {
+        int start = start(index);
+        int symbol = symbol(index);
+        return new Token(type(index), source, start, start + length(index), line(index),
+            symbol, symbol >= 0 ? symbols.name(symbol) : null);
+    }
+
+    /**
+     * Creates Token objects for all entries.
+     * @return A new list of tokens.
+     */
+    public List<Token> toList() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(get(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * Moves the gap in front of a token, so that it and every later token are stored
+     * relative to the end of the source. Call before editing the source in front of them.
+     * @param index The index of the first token to store relative to the end.
+     */
+    void moveGap(int index) {
+        int width = kinds.length - size;
+        int end = source.length();
+        while (gap > index) {
+            gap--;
+            move(gap, gap + width, -end, -tailLine);
+        }
+        while (gap < index) {
+            move(gap + width, gap, end, tailLine);
+            gap++;
+        }
+    }
+
+    /**
+     * Shifts the lines of the tokens after the gap.
+     * @param delta The number of lines to add.
+     */
+    void shiftTailLines(int delta) {
+        tailLine += delta;
+    }
+
+    /**
+     * Replaces a range of tokens that contains the gap with the tokens of another buffer.
+     * The gap ends up after the inserted tokens.
+     * @param from The index of the first token to remove.
+     * @param to The index just past the last token to remove.
+     * @param tokens The tokens to insert, with absolute starts and lines.
+     */
+    void replace(int from, int to, TokenBuffer tokens) {
+        if (from > gap || to < gap || to > size) {
+            throw new IndexOutOfBoundsException("Token range [" + from + ", " + to + ") does not contain the gap at " + gap);
+        }
+        size -= to - from;
+        gap = from;
+        int count = tokens.size();
+        if (kinds.length - size < count) {
+            grow(Math.max(kinds.length * 2, size + count));
+        }
+        for (int i = 0; i < count; i++) {
+            kinds[gap] = tokens.kind(i);
+            starts[gap] = tokens.start(i);
+            lengths[gap] = tokens.length(i);
+            lines[gap] = tokens.line(i);
+            symbolIds[gap] = tokens.symbol(i);
+            gap++;
+            size++;
+        }
+    }
+
+    private void move(int from, int to, int startDelta, int lineDelta) {
+        kinds[to] = kinds[from];
+        starts[to] = starts[from] + startDelta;
+        lengths[to] = lengths[from];
+        lines[to] = lines[from] + lineDelta;
+        symbolIds[to] = symbolIds[from];
+    }
+
+    // Reallocates the arrays, keeping the tokens after the gap at the back.
+    private void grow(int capacity) {
+        int tail = size - gap;
+        kinds = grow(kinds, capacity, tail);
+        starts = grow(starts, capacity, tail);
+        lengths = grow(lengths, capacity, tail);
+        lines = grow(lines, capacity, tail);
+        symbolIds = grow(symbolIds, capacity, tail);
+    }
+
+    private static int[] grow(int[] array, int capacity, int tail) {
+        int[] grown = Arrays.copyOf(array, capacity);
+        System.arraycopy(array, array.length - tail, grown, capacity - tail, tail);
+        return grown;
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token index " + index + " out of bounds for size " + size);
+        }
+        return index < gap ? index : index + kinds.length - size;
+    }
+}
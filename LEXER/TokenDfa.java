@@ -0,0 +1,728 @@
+package LEXER;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Deterministic scanner compiled from an ordered list of TokenDefinitions.
+ * All definitions are combined into one minimized DFA, so a token costs a single
+ * pass over its characters instead of one regex match per definition.
+ * The longest match wins; on equal length the definition listed first wins,
+ * which is the same rule the regex loop in Lexer used.
+ *
+ * Supported regex subset: literals, escapes (\n \t \r \s \S \d \D \w \W and
+ * escaped punctuation), character classes, '.', groups, '|', '*', '+', '?'.
+ * A leading or trailing \b is supported as a word-boundary assertion, and a
+ * lazy quantifier ('*?', '+?', '??') makes its definition stop at its shortest match.
+ */
+final class TokenDfa {
+    /** Returned by match() when no definition matches at the given position. */
+    static final long NO_MATCH = -1L;
+    /** Returned by match() when the text ended before the match could be decided. */
+    static final long NEED_INPUT = -2L;
+
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private final char[] classOf;
+    private final int classCount;
+    private final int[] transitions;
+    private final int[] acceptPlain;
+    private final int[] acceptBounded;
+    private final int start;
+
+    private TokenDfa(char[] classOf, int classCount, int[] transitions,
+                     int[] acceptPlain, int[] acceptBounded, int start) {
+        this.classOf = classOf;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.acceptPlain = acceptPlain;
+        this.acceptBounded = acceptBounded;
+        this.start = start;
+    }
+
+    /**
+     * Compiles the given definitions into a minimized DFA.
+     * @param definitions The token definitions, in priority order.
+     * @return The compiled scanner.
+     * @throws IllegalArgumentException If a pattern uses unsupported regex syntax.
+     */
+    static TokenDfa compile(List<TokenDefinition> definitions) {
+        Nfa nfa = new Nfa();
+        int[] starts = new int[definitions.size()];
+        boolean[] leading = new boolean[definitions.size()];
+        boolean[] trailing = new boolean[definitions.size()];
+        boolean[] lazy = new boolean[definitions.size()];
+        for (int i = 0; i < definitions.size(); i++) {
+            RegexParser parser = new RegexParser(definitions.get(i).getPattern().pattern(), nfa, i);
+            int[] fragment = parser.parse();
+            int accept = nfa.newState(i);
+            nfa.accept[accept] = i;
+            nfa.epsilon(fragment[1], accept);
+            starts[i] = fragment[0];
+            leading[i] = parser.leadingBoundary;
+            trailing[i] = parser.trailingBoundary;
+            lazy[i] = parser.lazy;
+        }
+        return new Builder(nfa, starts, leading, trailing, lazy).build();
+    }
+
+    /**
+     * Finds the longest token starting at the given position.
+     * @param input The text to scan.
+     * @param from The position where the token starts.
+     * @param end The end of the input text (exclusive).
+     * @return NO_MATCH, or the packed length and definition index of the match.
+     */
+    long match(CharSequence input, int from, int end) {
+        return match(input, from, end, true);
+    }
+
+    /**
+     * Finds the longest token starting at the given position of a text window.
+     * @param input The text to scan.
+     * @param from The position where the token starts.
+     * @param end The end of the available text (exclusive).
+     * @param endOfInput False if more text may follow end.
+     * @return NO_MATCH, NEED_INPUT, or the packed length and definition index of the match.
+     */
+    long match(CharSequence input, int from, int end, boolean endOfInput) {
+        int state = start;
+        int bestDefinition = NONE;
+        int bestEnd = from;
+        int pos = from;
+        while (pos < end) {
+            state = transitions[state * classCount + classOf[input.charAt(pos)]];
+            if (state < 0) {
+                break;
+            }
+            pos++;
+            int definition = acceptPlain[state];
+            if (acceptBounded[state] < definition && isBoundary(input, pos, end)) {
+                definition = acceptBounded[state];
+            }
+            if (definition != NONE) {
+                bestDefinition = definition;
+                bestEnd = pos;
+            }
+        }
+        if (pos == end && state >= 0 && !endOfInput) {
+            return NEED_INPUT;
+        }
+        if (bestDefinition == NONE) {
+            return NO_MATCH;
+        }
+        // java.util.regex matches code points, so a match never ends inside a surrogate pair
+        if (bestEnd < end && Character.isHighSurrogate(input.charAt(bestEnd - 1)) &&
+            Character.isLowSurrogate(input.charAt(bestEnd))) {
+            bestEnd++;
+        }
+        return ((long) (bestEnd - from) << 32) | bestDefinition;
+    }
+
+    /**
+     * Gets the match length from a value returned by match().
+     * @param match The packed match.
+     * @return The number of characters matched.
+     */
+    static int length(long match) {
+        return (int) (match >>> 32);
+    }
+
+    /**
+     * Gets the definition index from a value returned by match().
+     * @param match The packed match.
+     * @return The index into the definition list.
+     */
+    static int definition(long match) {
+        return (int) match;
+    }
+
+    /**
+     * Gets the number of states in the minimized DFA.
+     * @return The state count.
+     */
+    int stateCount() {
+        return acceptPlain.length;
+    }
+
+    // Word boundary with the same notion of "word character" as java.util.regex \b.
+    private static boolean isBoundary(CharSequence input, int pos, int end) {
+        boolean left = pos > 0 && isWordAt(input, pos - 1);
+        boolean right = pos < end && isWordAt(input, pos);
+        return left != right;
+    }
+
+    private static boolean isWordAt(CharSequence input, int pos) {
+        if (isWordChar(Character.codePointAt(input, pos))) {
+            return true;
+        }
+        if (Character.getType(input.charAt(pos)) != Character.NON_SPACING_MARK) {
+            return false;
+        }
+        // A non-spacing mark counts as a word character when it follows a letter or digit.
+        for (int i = pos - 1; i >= 0; i--) {
+            char base = input.charAt(i);
+            if (Character.getType(base) != Character.NON_SPACING_MARK) {
+                return Character.isLetterOrDigit(base);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordChar(int ch) {
+        return ch == '_' || Character.isLetterOrDigit(ch);
+    }
+
+    /**
+     * Sorted, non-overlapping inclusive character ranges stored as [lo0, hi0, lo1, hi1, ...].
+     */
+    private static final class CharSet {
+        final int[] ranges;
+
+        CharSet(int... ranges) {
+            this.ranges = ranges;
+        }
+
+        static CharSet of(char c) {
+            return new CharSet(c, c);
+        }
+
+        static CharSet range(char lo, char hi) {
+            return new CharSet(lo, hi);
+        }
+
+        CharSet union(CharSet other) {
+            int[] all = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+            System.arraycopy(other.ranges, 0, all, ranges.length, other.ranges.length);
+            Integer[] order = new Integer[all.length / 2];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(all[a * 2], all[b * 2]));
+            int[] merged = new int[all.length];
+            int n = 0;
+            for (int i : order) {
+                int lo = all[i * 2];
+                int hi = all[i * 2 + 1];
+                if (n > 0 && lo <= merged[n - 1] + 1) {
+                    merged[n - 1] = Math.max(merged[n - 1], hi);
+                } else {
+                    merged[n++] = lo;
+                    merged[n++] = hi;
+                }
+            }
+            return new CharSet(Arrays.copyOf(merged, n));
+        }
+
+        CharSet complement() {
+            int[] result = new int[ranges.length + 2];
+            int n = 0;
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    result[n++] = next;
+                    result[n++] = ranges[i] - 1;
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= Character.MAX_VALUE) {
+                result[n++] = next;
+                result[n++] = Character.MAX_VALUE;
+            }
+            return new CharSet(Arrays.copyOf(result, n));
+        }
+
+        boolean contains(int c) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (c >= ranges[i] && c <= ranges[i + 1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final CharSet DIGITS = CharSet.range('0', '9');
+    private static final CharSet WORD = CharSet.range('a', 'z').union(CharSet.range('A', 'Z'))
+        .union(DIGITS).union(CharSet.of('_'));
+    private static final CharSet SPACE = new CharSet('\t', '\r', ' ', ' ');
+    private static final CharSet LINE_TERMINATORS = new CharSet('\n', '\n', '\r', '\r',
+        '\u0085', '\u0085', '\u2028', '\u2029');
+
+    /**
+     * Thompson NFA under construction. Each state has either one character-set edge
+     * or up to two epsilon edges, and remembers which definition it belongs to.
+     */
+    private static final class Nfa {
+        final List<CharSet> sets = new ArrayList<>();
+        final List<Integer> targets = new ArrayList<>();
+        final List<int[]> epsilons = new ArrayList<>();
+        final List<Integer> owners = new ArrayList<>();
+        int[] accept = new int[0];
+
+        int newState(int owner) {
+            sets.add(null);
+            targets.add(-1);
+            epsilons.add(new int[0]);
+            owners.add(owner);
+            if (accept.length < owners.size()) {
+                int old = accept.length;
+                accept = Arrays.copyOf(accept, Math.max(16, old * 2));
+                Arrays.fill(accept, old, accept.length, NONE);
+            }
+            return owners.size() - 1;
+        }
+
+        void edge(int from, CharSet set, int to) {
+            sets.set(from, set);
+            targets.set(from, to);
+        }
+
+        void epsilon(int from, int to) {
+            int[] old = epsilons.get(from);
+            int[] updated = Arrays.copyOf(old, old.length + 1);
+            updated[old.length] = to;
+            epsilons.set(from, updated);
+        }
+
+        int size() {
+            return owners.size();
+        }
+    }
+
+    /**
+     * Recursive-descent parser for the supported regex subset. Produces NFA
+     * fragments as [entry, exit] state pairs.
+     */
+    private static final class RegexParser {
+        private final String pattern;
+        private final Nfa nfa;
+        private final int owner;
+        private int pos;
+        boolean leadingBoundary;
+        boolean trailingBoundary;
+        boolean lazy;
+
+        RegexParser(String pattern, Nfa nfa, int owner) {
+            this.pattern = pattern;
+            this.nfa = nfa;
+            this.owner = owner;
+        }
+
+        int[] parse() {
+            if (pattern.startsWith("^")) {
+                pos++;
+            }
+            if (pattern.startsWith("\\b", pos)) {
+                leadingBoundary = true;
+                pos += 2;
+            }
+            int end = pattern.length();
+            if (end - pos >= 2 && pattern.endsWith("\\b") && !pattern.endsWith("\\\\b")) {
+                trailingBoundary = true;
+                end -= 2;
+            }
+            int[] fragment = alternation(end);
+            if (pos != end) {
+                throw error("unexpected '" + pattern.charAt(pos) + "'");
+            }
+            return fragment;
+        }
+
+        private int[] alternation(int end) {
+            int[] left = sequence(end);
+            while (pos < end && pattern.charAt(pos) == '|') {
+                pos++;
+                int[] right = sequence(end);
+                int entry = nfa.newState(owner);
+                int exit = nfa.newState(owner);
+                nfa.epsilon(entry, left[0]);
+                nfa.epsilon(entry, right[0]);
+                nfa.epsilon(left[1], exit);
+                nfa.epsilon(right[1], exit);
+                left = new int[] {entry, exit};
+            }
+            return left;
+        }
+
+        private int[] sequence(int end) {
+            int entry = nfa.newState(owner);
+            int exit = entry;
+            while (pos < end && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+                int[] item = quantified(end);
+                nfa.epsilon(exit, item[0]);
+                exit = item[1];
+            }
+            return new int[] {entry, exit};
+        }
+
+        private int[] quantified(int end) {
+            int[] atom = atom(end);
+            while (pos < end && "*+?".indexOf(pattern.charAt(pos)) >= 0) {
+                char quantifier = pattern.charAt(pos++);
+                if (pos < end && pattern.charAt(pos) == '?') {
+                    lazy = true;
+                    pos++;
+                }
+                int entry = nfa.newState(owner);
+                int exit = nfa.newState(owner);
+                nfa.epsilon(entry, atom[0]);
+                nfa.epsilon(atom[1], exit);
+                if (quantifier != '+') {
+                    nfa.epsilon(entry, exit);
+                }
+                if (quantifier != '?') {
+                    nfa.epsilon(atom[1], atom[0]);
+                }
+                atom = new int[] {entry, exit};
+            }
+            return atom;
+        }
+
+        private int[] atom(int end) {
+            char c = pattern.charAt(pos);
+            if (c == '(') {
+                pos++;
+                if (pattern.startsWith("?:", pos)) {
+                    pos += 2;
+                }
+                int[] inner = alternation(end);
+                if (pos >= end || pattern.charAt(pos) != ')') {
+                    throw error("missing ')'");
+                }
+                pos++;
+                return inner;
+            }
+            CharSet set;
+            if (c == '[') {
+                set = charClass();
+            } else if (c == '.') {
+                pos++;
+                set = LINE_TERMINATORS.complement();
+            } else if (c == '\\') {
+                set = escape();
+            } else if ("*+?)".indexOf(c) >= 0) {
+                throw error("unexpected '" + c + "'");
+            } else {
+                pos++;
+                set = CharSet.of(c);
+            }
+            int entry = nfa.newState(owner);
+            int exit = nfa.newState(owner);
+            nfa.edge(entry, set, exit);
+            return new int[] {entry, exit};
+        }
+
+        private CharSet charClass() {
+            pos++; // consume '['
+            boolean negated = pos < pattern.length() && pattern.charAt(pos) == '^';
+            if (negated) {
+                pos++;
+            }
+            CharSet set = new CharSet();
+            boolean first = true;
+            while (pos < pattern.length() && (first || pattern.charAt(pos) != ']')) {
+                first = false;
+                CharSet item;
+                char lo = pattern.charAt(pos);
+                if (lo == '\\') {
+                    item = escape();
+                    if (item.ranges.length == 2 && item.ranges[0] == item.ranges[1]) {
+                        lo = (char) item.ranges[0];
+                    } else {
+                        set = set.union(item);
+                        continue;
+                    }
+                } else {
+                    pos++;
+                }
+                if (pos + 1 < pattern.length() && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    char hi = pattern.charAt(pos);
+                    if (hi == '\\') {
+                        CharSet escaped = escape();
+                        hi = (char) escaped.ranges[0];
+                    } else {
+                        pos++;
+                    }
+                    set = set.union(CharSet.range(lo, hi));
+                } else {
+                    set = set.union(CharSet.of(lo));
+                }
+            }
+            if (pos >= pattern.length()) {
+                throw error("missing ']'");
+            }
+            pos++; // consume ']'
+            return negated ? set.complement() : set;
+        }
+
+        private CharSet escape() {
+            if (pos + 1 >= pattern.length()) {
+                throw error("dangling '\\'");
+            }
+            char c = pattern.charAt(pos + 1);
+            pos += 2;
+            switch (c) {
+                case 'n': return CharSet.of('\n');
+                case 't': return CharSet.of('\t');
+                case 'r': return CharSet.of('\r');
+                case 'f': return CharSet.of('\f');
+                case 's': return SPACE;
+                case 'S': return SPACE.complement();
+                case 'd': return DIGITS;
+                case 'D': return DIGITS.complement();
+                case 'w': return WORD;
+                case 'W': return WORD.complement();
+                case 'b': throw error("\\b is only supported at the start or end of a pattern");
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        throw error("unsupported escape \\" + c);
+                    }
+                    return CharSet.of(c);
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Unsupported token pattern " + pattern + ": " + message);
+        }
+    }
+
+    /**
+     * Subset construction followed by Moore partition refinement.
+     */
+    private static final class Builder {
+        private final Nfa nfa;
+        private final int[] starts;
+        private final boolean[] leading;
+        private final boolean[] trailing;
+        private final boolean[] lazy;
+        private char[] classOf;
+        private int classCount;
+        private BitSet[] edgeClasses;
+        private byte[] wordClass; // 1 all word characters, 0 none, -1 mixed
+
+        Builder(Nfa nfa, int[] starts, boolean[] leading, boolean[] trailing, boolean[] lazy) {
+            this.nfa = nfa;
+            this.starts = starts;
+            this.leading = leading;
+            this.trailing = trailing;
+            this.lazy = lazy;
+        }
+
+        TokenDfa build() {
+            partitionAlphabet();
+
+            List<BitSet> states = new ArrayList<>();
+            List<int[]> table = new ArrayList<>();
+            Map<BitSet, Integer> index = new HashMap<>();
+
+            BitSet startSet = new BitSet();
+            for (int s : starts) {
+                startSet.set(s);
+            }
+            states.add(closure(startSet));
+            // The start state is never shared: only it applies the leading \b restriction.
+            for (int current = 0; current < states.size(); current++) {
+                BitSet set = states.get(current);
+                int[] row = new int[classCount];
+                for (int c = 0; c < classCount; c++) {
+                    BitSet moved = new BitSet();
+                    for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                        int target = nfa.targets.get(s);
+                        if (target < 0 || !edgeClasses[s].get(c)) {
+                            continue;
+                        }
+                        int owner = nfa.owners.get(s);
+                        if (current == 0 && leading[owner]) {
+                            if (wordClass[c] < 0) {
+                                throw new IllegalArgumentException(
+                                    "Leading \\b needs a first character set that does not mix word and non-word characters");
+                            }
+                            if (wordClass[c] == 0) {
+                                continue;
+                            }
+                        }
+                        moved.set(target);
+                    }
+                    if (moved.isEmpty()) {
+                        row[c] = -1;
+                        continue;
+                    }
+                    BitSet next = closure(moved);
+                    Integer id = index.get(next);
+                    if (id == null) {
+                        id = states.size();
+                        states.add(next);
+                        index.put(next, id);
+                    }
+                    row[c] = id;
+                }
+                table.add(row);
+            }
+
+            int n = states.size();
+            int[] plain = new int[n];
+            int[] bounded = new int[n];
+            for (int i = 0; i < n; i++) {
+                plain[i] = NONE;
+                bounded[i] = NONE;
+                BitSet set = states.get(i);
+                for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                    int definition = nfa.accept[s];
+                    if (definition == NONE) {
+                        continue;
+                    }
+                    if (trailing[definition]) {
+                        bounded[i] = Math.min(bounded[i], definition);
+                    } else {
+                        plain[i] = Math.min(plain[i], definition);
+                    }
+                }
+            }
+            return minimize(table, plain, bounded);
+        }
+
+        // Epsilon closure; a lazy definition that reached its accept state drops its other threads.
+        private BitSet closure(BitSet seed) {
+            BitSet result = (BitSet) seed.clone();
+            int[] stack = new int[nfa.size()];
+            int top = 0;
+            for (int s = seed.nextSetBit(0); s >= 0; s = seed.nextSetBit(s + 1)) {
+                stack[top++] = s;
+            }
+            while (top > 0) {
+                int s = stack[--top];
+                for (int t : nfa.epsilons.get(s)) {
+                    if (!result.get(t)) {
+                        result.set(t);
+                        stack[top++] = t;
+                    }
+                }
+            }
+            for (int s = result.nextSetBit(0); s >= 0; s = result.nextSetBit(s + 1)) {
+                int definition = nfa.accept[s];
+                if (definition != NONE && lazy[definition]) {
+                    for (int t = result.nextSetBit(0); t >= 0; t = result.nextSetBit(t + 1)) {
+                        if (t != s && nfa.owners.get(t) == definition) {
+                            result.clear(t);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        // Splits the char range into classes that no character-set edge can tell apart.
+        private void partitionAlphabet() {
+            TreeSet<Integer> cuts = new TreeSet<>();
+            cuts.add(0);
+            for (CharSet set : nfa.sets) {
+                if (set == null) {
+                    continue;
+                }
+                for (int i = 0; i < set.ranges.length; i += 2) {
+                    cuts.add(set.ranges[i]);
+                    if (set.ranges[i + 1] < Character.MAX_VALUE) {
+                        cuts.add(set.ranges[i + 1] + 1);
+                    }
+                }
+            }
+            if (cuts.size() > Character.MAX_VALUE) {
+                throw new IllegalStateException("Too many character classes");
+            }
+            classOf = new char[Character.MAX_VALUE + 1];
+            int[] lows = new int[cuts.size()];
+            int c = 0;
+            for (int cut : cuts) {
+                lows[c++] = cut;
+            }
+            classCount = lows.length;
+            wordClass = new byte[classCount];
+            for (int k = 0; k < classCount; k++) {
+                int hi = k + 1 < classCount ? lows[k + 1] - 1 : Character.MAX_VALUE;
+                Arrays.fill(classOf, lows[k], hi + 1, (char) k);
+                boolean word = isWordChar(lows[k]);
+                wordClass[k] = (byte) (word ? 1 : 0);
+                for (int ch = lows[k] + 1; ch <= hi; ch++) {
+                    if (isWordChar(ch) != word) {
+                        wordClass[k] = -1;
+                        break;
+                    }
+                }
+            }
+            edgeClasses = new BitSet[nfa.size()];
+            for (int s = 0; s < nfa.size(); s++) {
+                CharSet set = nfa.sets.get(s);
+                if (set == null) {
+                    continue;
+                }
+                BitSet classes = new BitSet(classCount);
+                for (int k = 0; k < classCount; k++) {
+                    if (set.contains(lows[k])) {
+                        classes.set(k);
+                    }
+                }
+                edgeClasses[s] = classes;
+            }
+        }
+
+        private TokenDfa minimize(List<int[]> table, int[] plain, int[] bounded) {
+            int n = table.size();
+            int[] block = new int[n];
+            Map<List<Integer>, Integer> initial = new HashMap<>();
+            for (int s = 0; s < n; s++) {
+                List<Integer> key = List.of(plain[s], bounded[s]);
+                Integer b = initial.get(key);
+                if (b == null) {
+                    b = initial.size();
+                    initial.put(key, b);
+                }
+                block[s] = b;
+            }
+            int blocks = initial.size();
+            while (true) {
+                Map<List<Integer>, Integer> refined = new HashMap<>();
+                int[] next = new int[n];
+                for (int s = 0; s < n; s++) {
+                    int[] row = table.get(s);
+                    List<Integer> key = new ArrayList<>(classCount + 1);
+                    key.add(block[s]);
+                    for (int target : row) {
+                        key.add(target < 0 ? -1 : block[target]);
+                    }
+                    Integer b = refined.get(key);
+                    if (b == null) {
+                        b = refined.size();
+                        refined.put(key, b);
+                    }
+                    next[s] = b;
+                }
+                block = next;
+                if (refined.size() == blocks) {
+                    break;
+                }
+                blocks = refined.size();
+            }
+
+            int[] transitions = new int[blocks * classCount];
+            int[] minPlain = new int[blocks];
+            int[] minBounded = new int[blocks];
+            for (int s = 0; s < n; s++) {
+                int b = block[s];
+                int[] row = table.get(s);
+                for (int c = 0; c < classCount; c++) {
+                    transitions[b * classCount + c] = row[c] < 0 ? -1 : block[row[c]];
+                }
+                minPlain[b] = plain[s];
+                minBounded[b] = bounded[s];
+            }
+            return new TokenDfa(classOf, classCount, transitions, minPlain, minBounded, block[0]);
+        }
+    }
+}
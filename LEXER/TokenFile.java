@@ -0,0 +1,397 @@
+package LEXER;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary token file that hands tokens from the lexer to the parser.
+ *
+ * Layout, big-endian:
+ * <pre>
+ *   header   "TOKS", u16 version, u16 flags (0), u64 token count, u64 string table offset
+ *   records  per token: varint kind (TokenType ordinal), varint zigzag line delta, varint value:
+ *            0 then the string itself, or 1 + its id in the string table
+ *   strings  varint count, then per string: varint length and its UTF-16 code units as varints
+ * </pre>
+ * String ids are assigned in order of first use, so equal values share one entry.
+ * The string table follows the records so a writer can stream tokens without buffering them.
+ * A writer keeps the table in memory until it closes, so it caps the table: values longer than
+ * MAX_TABLE_LENGTH, and new values once MAX_TABLE_STRINGS are held, are written inline instead.
+ * Writing memory is therefore bounded however many distinct identifiers and literals the input
+ * has. Version 1 files, whose records hold a plain string id, are still read.
+ */
+public final class TokenFile {
+    /** Current format version. */
+    public static final int VERSION = 2;
+    /** Most values a writer keeps in the string table; later new values are written inline. */
+    public static final int MAX_TABLE_STRINGS = 1 << 16;
+    /** Longest value a writer puts in the string table; longer ones are written inline. */
+    public static final int MAX_TABLE_LENGTH = 128;
+    private static final int MAGIC = ('T' << 24) | ('O' << 16) | ('K' << 8) | 'S';
+    private static final int HEADER_SIZE = 24;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final int[] kinds;
+    private final int[] lines;
+    private final int[] stringIds;
+    private final String[] strings;
+
+    private TokenFile(int[] kinds, int[] lines, int[] stringIds, String[] strings) {
+        this.kinds = kinds;
+        this.lines = lines;
+        this.stringIds = stringIds;
+        this.strings = strings;
+    }
+
+    /**
+     * Writes all tokens of a buffer to a file.
+     * @param tokens The tokens to write.
+     * @param path The output file path.
+     * @throws IOException If writing fails.
+     */
+    public static void write(TokenBuffer tokens, Path path) throws IOException {
+        LexerEvents.SaveTokens event = new LexerEvents.SaveTokens();
+        event.begin();
+        String outcome = "success";
+        try (Writer writer = new Writer(path)) {
+            for (int i = 0; i < tokens.size(); i++) {
+                writer.add(tokens, i);
+            }
+        } catch (IOException e) {
+            outcome = e.toString();
+            throw e;
+        } finally {
+            Lexer.commit(event, path, "binary", tokens.size(), outcome);
+        }
+    }
+
+    /**
+     * Checks whether a file starts with the token file magic number.
+     * @param path The file to check.
+     * @return True if the file looks like a token file.
+     * @throws IOException If reading fails.
+     */
+    public static boolean isTokenFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) > 0) {
+                // Keep reading until the magic number is complete or the file ends.
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Reads a token file through a memory mapping.
+     * @param path The token file.
+     * @return The decoded tokens.
+     * @throws IOException If reading fails or the file is not a valid token file.
+     */
+    public static TokenFile read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a token file: " + path);
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Token file too large: " + path);
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a token file: " + path);
+            }
+            int version = in.getShort() & 0xFFFF;
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported token file version " + version + ": " + path);
+            }
+            in.getShort();
+            long count = in.getLong();
+            long tableOffset = in.getLong();
+            if (count < 0 || count > Integer.MAX_VALUE || tableOffset < HEADER_SIZE || tableOffset > fileSize) {
+                throw new IOException("Corrupt token file header: " + path);
+            }
+            try {
+                ByteBuffer table = in.duplicate().position((int) tableOffset);
+                // Every string takes at least a byte, which bounds the count
+                int stringCount = readVarint(table);
+                if (stringCount < 0 || stringCount > table.remaining()) {
+                    throw new IOException("Corrupt token string table: " + path);
+                }
+                // The table, then the values written inline in the order they are read
+                List<String> strings = new ArrayList<>(stringCount);
+                for (int s = 0; s < stringCount; s++) {
+                    strings.add(readString(table, path));
+                }
+
+                int size = (int) count;
+                int[] kinds = new int[size];
+                int[] lines = new int[size];
+                int[] stringIds = new int[size];
+                int line = 0;
+                for (int i = 0; i < size; i++) {
+                    kinds[i] = readVarint(in);
+                    int delta = readVarint(in);
+                    line += (delta >>> 1) ^ -(delta & 1);
+                    lines[i] = line;
+                    int value = readVarint(in);
+                    if (version == 1) {
+                        stringIds[i] = value;
+                    } else if (value == 0) {
+                        stringIds[i] = strings.size();
+                        strings.add(readString(in, path));
+                    } else {
+                        stringIds[i] = value - 1;
+                    }
+                    if (kinds[i] < 0 || kinds[i] >= TYPES.length || stringIds[i] < 0 || stringIds[i] >= strings.size()) {
+                        throw new IOException("Corrupt token record " + i + ": " + path);
+                    }
+                }
+                return new TokenFile(kinds, lines, stringIds, strings.toArray(new String[0]));
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt token file: " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tokens.
+     * @return The token count.
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * Gets the type of a token.
+     * @param index The token index.
+     * @return The token type.
+     */
+    public TokenType type(int index) {
+        return TYPES[kinds[index]];
+    }
+
+    /**
+     * Gets the line number of a token.
+     * @param index The token index.
+     * @return The line number.
+     */
+    public int line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Gets the value of a token. Equal values from the string table are the same String instance.
+     * @param index The token index.
+     * @return The token's lexeme.
+     */
+    public String value(int index) {
+        return strings[stringIds[index]];
+    }
+
+    // A varint length and that many code units; every code unit takes at least a byte
+    private static String readString(ByteBuffer in, Path path) throws IOException {
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Corrupt token string: " + path);
+        }
+        char[] chars = new char[length];
+        for (int c = 0; c < length; c++) {
+            chars[c] = (char) readVarint(in);
+        }
+        return new String(chars);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    /**
+     * Streams tokens into a token file. The string table and header are written on close, unless
+     * an add failed or the writer was aborted; the file is then left without a valid header, so
+     * it is never read as a token file with tokens missing.
+     */
+    public static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        // String id per symbol id of the last symbol table seen, -1 if not in the table.
+        // Symbols are names, which are short, so only a full table leaves one out.
+        private SymbolTable symbols;
+        private int[] symbolStrings = new int[0];
+        private long count;
+        private int line;
+        // Set while an add is under way, and left set if it throws or the writer is aborted
+        private boolean failed;
+
+        /**
+         * Creates or truncates a token file.
+         * @param path The output file path.
+         * @throws IOException If the file cannot be opened.
+         */
+        public Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            out.position(HEADER_SIZE);
+        }
+
+        /**
+         * Appends a token.
+         * @param type The token type.
+         * @param line The line number where the token appears.
+         * @param value The token's lexeme.
+         * @throws IOException If writing fails, or an earlier add failed or the writer was aborted.
+         */
+        public void add(TokenType type, int line, String value) throws IOException {
+            start();
+            record(type.ordinal(), line, stringId(value), value);
+            failed = false;
+        }
+
+        /**
+         * Appends a token from a buffer, looking interned names up by symbol id.
+         * @param tokens The buffer holding the token.
+         * @param index The token index.
+         * @throws IOException If writing fails, or an earlier add failed or the writer was aborted.
+         */
+        public void add(TokenBuffer tokens, int index) throws IOException {
+            start();
+            int symbol = tokens.symbol(index);
+            if (symbol < 0) {
+                String value = tokens.value(index);
+                record(tokens.kind(index), tokens.line(index), stringId(value), value);
+                failed = false;
+                return;
+            }
+            if (tokens.getSymbols() != symbols) {
+                symbols = tokens.getSymbols();
+                symbolStrings = new int[0];
+            }
+            if (symbol >= symbolStrings.length) {
+                int old = symbolStrings.length;
+                symbolStrings = Arrays.copyOf(symbolStrings, Math.max(symbols.size(), symbol + 1));
+                Arrays.fill(symbolStrings, old, symbolStrings.length, -1);
+            }
+            if (symbolStrings[symbol] < 0) {
+                symbolStrings[symbol] = stringId(symbols.name(symbol));
+            }
+            record(tokens.kind(index), tokens.line(index), symbolStrings[symbol], symbols.name(symbol));
+            failed = false;
+        }
+
+        /**
+         * Marks the file as incomplete, for a caller that stops adding tokens because of an error
+         * of its own. Close then leaves it without a valid header.
+         */
+        public void abort() {
+            failed = true;
+        }
+
+        /**
+         * Writes the string table and header and closes the file. After a failed add or an abort
+         * only the file is closed.
+         * @throws IOException If writing fails.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (failed) {
+                    return; // The header stays zeroed or unwritten, which read() rejects
+                }
+                long tableOffset = channel.position() + out.position();
+                putVarint(strings.size());
+                for (String s : strings) {
+                    putString(s);
+                }
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort((short) VERSION).putShort((short) 0).putLong(count).putLong(tableOffset);
+                header.flip();
+                long position = 0;
+                while (header.hasRemaining()) {
+                    position += channel.write(header, position);
+                }
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void start() throws IOException {
+            if (failed) {
+                throw new IOException("Token file writer has failed or been aborted");
+            }
+            failed = true;
+        }
+
+        // The value's id in the string table, adding it if there is room, or -1 to write it inline
+        private int stringId(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                if (value.length() > MAX_TABLE_LENGTH || strings.size() == MAX_TABLE_STRINGS) {
+                    return -1;
+                }
+                id = strings.size();
+                ids.put(value, id);
+                strings.add(value);
+            }
+            return id;
+        }
+
+        private void record(int kind, int line, int stringId, String value) throws IOException {
+            int delta = line - this.line;
+            this.line = line;
+            putVarint(kind);
+            putVarint((delta << 1) ^ (delta >> 31));
+            if (stringId >= 0) {
+                putVarint(stringId + 1);
+            } else {
+                putVarint(0);
+                putString(value);
+            }
+            count++;
+        }
+
+        private void putString(String s) throws IOException {
+            putVarint(s.length());
+            for (int c = 0; c < s.length(); c++) {
+                putVarint(s.charAt(c));
+            }
+        }
+
+        private void putVarint(int value) throws IOException {
+            if (out.remaining() < 5) {
+                flush();
+            }
+            while ((value & ~0x7F) != 0) {
+                out.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package SYNTAX_ANALYZER;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import LEXER.TokenType;
+import SYNTAX_ANALYZER.SyntaxAnalyzer.Token;
+
+/**
+ * Context-free grammar read from a text file, with its FIRST and FOLLOW sets.
+ * The file format is described at the top of grammar.txt, the grammar the parser uses.
+ *
+ * Symbols are ints. Terminals come first, numbered from 0: one per token spelling the grammar
+ * uses, then ID, CONST and the end marker $. Nonterminals follow, numbered in order of first
+ * appearance. Productions are numbered in file order.
+ */
+public final class Grammar {
+    /** Name of the grammar file bundled next to this class. */
+    public static final String RESOURCE = "grammar.txt";
+    /** Terminal name matching any identifier. */
+    public static final String ID = "ID";
+    /** Terminal name matching any literal constant. */
+    public static final String CONST = "CONST";
+    /** Terminal name of the end of input. */
+    public static final String END = "$";
+    private static final String ARROW = "→";
+    private static final String EPSILON = "ε";
+    private static final EnumSet<TokenType> CONSTANTS = EnumSet.of(
+        TokenType.INT_CONSTANT, TokenType.FLOAT_CONSTANT, TokenType.STRING_CONSTANT, TokenType.BOOLEAN_CONSTANT);
+
+    private final String[] names;
+    private final int terminalCount;
+    // Terminal per TokenKind ordinal, -1 for kinds the grammar does not use.
+    private final int[] terminalByKind;
+    private final int id;
+    private final int constant;
+    private final int end;
+    private final int[] lhs;
+    private final int[][] rhs;
+    private final boolean[] nullable;
+    private final BitSet[] first;
+    private final BitSet[] follow;
+
+    private Grammar(List<String> names, int terminalCount, int[] terminalByKind, int[] lhs, int[][] rhs) {
+        this.names = names.toArray(new String[0]);
+        this.terminalCount = terminalCount;
+        this.terminalByKind = terminalByKind;
+        this.id = terminalCount - 3;
+        this.constant = terminalCount - 2;
+        this.end = terminalCount - 1;
+        this.lhs = lhs;
+        this.rhs = rhs;
+        int nonterminals = this.names.length - terminalCount;
+        this.nullable = new boolean[nonterminals];
+        this.first = new BitSet[nonterminals];
+        this.follow = new BitSet[nonterminals];
+        for (int n = 0; n < nonterminals; n++) {
+            first[n] = new BitSet(terminalCount);
+            follow[n] = new BitSet(terminalCount);
+        }
+        computeFirst();
+        computeFollow();
+    }
+
+    /**
+     * Loads the grammar bundled with the parser.
+     * @return The grammar.
+     * @throws IllegalStateException If the grammar file is missing or cannot be read.
+     */
+    public static Grammar standard() {
+        try (InputStream in = Grammar.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Grammar resource not found: " + RESOURCE);
+            }
+            return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading grammar resource: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads a grammar file.
+     * @param path The grammar file, in UTF-8.
+     * @return The grammar.
+     * @throws IOException If reading fails.
+     * @throws IllegalArgumentException If the file is not a valid grammar.
+     */
+    public static Grammar load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Reads a grammar.
+     * @param reader The grammar text.
+     * @return The grammar.
+     * @throws IOException If reading fails.
+     * @throws IllegalArgumentException If the text is not a valid grammar.
+     */
+    public static Grammar parse(Reader reader) throws IOException {
+        // Collect the rules first, as lists of symbol names, so terminals can be numbered before nonterminals.
+        List<String> heads = new ArrayList<>();
+        List<List<String>> bodies = new ArrayList<>();
+        List<Integer> lineNumbers = new ArrayList<>();
+        BufferedReader in = new BufferedReader(reader);
+        String head = null;
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] words = line.split("\\s+");
+            int from;
+            if (words[0].equals("|")) {
+                if (head == null) {
+                    throw new IllegalArgumentException("Grammar line " + lineNumber + ": '|' before any rule");
+                }
+                from = 1;
+            } else {
+                if (words.length < 2 || !isNonterminal(words[0]) || !words[1].equals(ARROW)) {
+                    throw new IllegalArgumentException("Grammar line " + lineNumber + ": expected '<name> " + ARROW + "'");
+                }
+                head = words[0];
+                from = 2;
+            }
+            // Split the rest of the line into alternatives at '|'.
+            List<String> body = new ArrayList<>();
+            for (int w = from; w <= words.length; w++) {
+                if (w == words.length || words[w].equals("|")) {
+                    if (body.isEmpty()) {
+                        throw new IllegalArgumentException("Grammar line " + lineNumber + ": empty alternative, write " + EPSILON);
+                    }
+                    if (body.size() == 1 && body.get(0).equals(EPSILON)) {
+                        body.clear();
+                    } else if (body.contains(EPSILON)) {
+                        throw new IllegalArgumentException("Grammar line " + lineNumber + ": " + EPSILON + " must stand alone");
+                    }
+                    heads.add(head);
+                    bodies.add(body);
+                    lineNumbers.add(lineNumber);
+                    body = new ArrayList<>();
+                } else {
+                    body.add(words[w]);
+                }
+            }
+        }
+        if (heads.isEmpty()) {
+            throw new IllegalArgumentException("Grammar has no rules");
+        }
+
+        // Number terminals in kind order, then ID, CONST and $; then nonterminals in order of appearance.
+        int[] terminalByKind = new int[TokenKind.values().length];
+        Arrays.fill(terminalByKind, -1);
+        boolean[] usedKinds = new boolean[terminalByKind.length];
+        for (int p = 0; p < bodies.size(); p++) {
+            for (String symbol : bodies.get(p)) {
+                if (isNonterminal(symbol) || symbol.equals(ID) || symbol.equals(CONST) || symbol.equals(END)) {
+                    continue;
+                }
+                TokenKind kind = TokenKind.of(symbol);
+                if (kind == TokenKind.OTHER || kind == TokenKind.EOF || kind == TokenKind.DOLLAR) {
+                    throw new IllegalArgumentException("Grammar line " + lineNumbers.get(p) + ": unknown terminal '" + symbol + "'");
+                }
+                usedKinds[kind.ordinal()] = true;
+            }
+        }
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> symbols = new HashMap<>();
+        for (TokenKind kind : TokenKind.values()) {
+            if (usedKinds[kind.ordinal()]) {
+                terminalByKind[kind.ordinal()] = names.size();
+                symbols.put(kind.spelling(), names.size());
+                names.add(kind.spelling());
+            }
+        }
+        for (String name : new String[] { ID, CONST, END }) {
+            symbols.put(name, names.size());
+            names.add(name);
+        }
+        int terminalCount = names.size();
+        for (String name : heads) {
+            if (!symbols.containsKey(name)) {
+                symbols.put(name, names.size());
+                names.add(name);
+            }
+        }
+
+        int[] lhs = new int[heads.size()];
+        int[][] rhs = new int[heads.size()][];
+        for (int p = 0; p < lhs.length; p++) {
+            lhs[p] = symbols.get(heads.get(p));
+            List<String> body = bodies.get(p);
+            rhs[p] = new int[body.size()];
+            for (int i = 0; i < rhs[p].length; i++) {
+                Integer symbol = symbols.get(body.get(i));
+                if (symbol == null) {
+                    throw new IllegalArgumentException("Grammar line " + lineNumbers.get(p) + ": " + body.get(i) + " has no rule");
+                }
+                rhs[p][i] = symbol;
+            }
+        }
+        return new Grammar(names, terminalCount, terminalByKind, lhs, rhs);
+    }
+
+    private static boolean isNonterminal(String symbol) {
+        return symbol.length() > 2 && symbol.startsWith("<") && symbol.endsWith(">");
+    }
+
+    // FIRST of each nonterminal and which ones derive ε, by iterating to a fixed point
+    private void computeFirst() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < lhs.length; p++) {
+                int n = lhs[p] - terminalCount;
+                int before = first[n].cardinality();
+                boolean derivesEmpty = addFirst(rhs[p], 0, first[n]);
+                if (first[n].cardinality() != before || (derivesEmpty && !nullable[n])) {
+                    nullable[n] |= derivesEmpty;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    // FOLLOW of each nonterminal, with $ following the start symbol, by iterating to a fixed point
+    private void computeFollow() {
+        follow[lhs[0] - terminalCount].set(end);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < lhs.length; p++) {
+                int[] body = rhs[p];
+                for (int i = 0; i < body.length; i++) {
+                    if (isTerminal(body[i])) {
+                        continue;
+                    }
+                    BitSet set = follow[body[i] - terminalCount];
+                    int before = set.cardinality();
+                    if (addFirst(body, i + 1, set)) {
+                        set.or(follow[lhs[p] - terminalCount]);
+                    }
+                    changed |= set.cardinality() != before;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds FIRST of a suffix of a production body to a set.
+     * @param body The production body.
+     * @param from The index the suffix starts at.
+     * @param into The set to add terminals to.
+     * @return True if the suffix derives ε.
+     */
+    boolean addFirst(int[] body, int from, BitSet into) {
+        for (int i = from; i < body.length; i++) {
+            if (isTerminal(body[i])) {
+                into.set(body[i]);
+                return false;
+            }
+            into.or(first[body[i] - terminalCount]);
+            if (!nullable[body[i] - terminalCount]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of terminals, which are the symbols below this number.
+     * @return The terminal count.
+     */
+    public int terminalCount() {
+        return terminalCount;
+    }
+
+    /**
+     * Gets the number of symbols, terminals and nonterminals together.
+     * @return The symbol count.
+     */
+    public int symbolCount() {
+        return names.length;
+    }
+
+    /**
+     * Checks whether a symbol is a terminal.
+     * @param symbol The symbol.
+     * @return True for a terminal, false for a nonterminal.
+     */
+    public boolean isTerminal(int symbol) {
+        return symbol < terminalCount;
+    }
+
+    /**
+     * Gets the name of a symbol as written in the grammar file.
+     * @param symbol The symbol.
+     * @return The token spelling, ID, CONST or $ for a terminal; the bracketed name for a nonterminal.
+     */
+    public String name(int symbol) {
+        return names[symbol];
+    }
+
+    /**
+     * Gets the start symbol, the left side of the first rule.
+     * @return The start symbol.
+     */
+    public int start() {
+        return lhs[0];
+    }
+
+    /**
+     * Gets the ID terminal.
+     * @return The terminal matching any identifier.
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * Gets the end of input terminal.
+     * @return The $ terminal.
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * Gets the terminal a token is read as. A word the grammar spells out is read as that word
+     * even where the lexer calls it an identifier; see LL1Parser for when it falls back to ID.
+     * @param tok The token.
+     * @return The terminal, or -1 if the token matches no terminal of the grammar.
+     */
+    public int terminalOf(Token tok) {
+        if (SyntaxAnalyzer.isEndOfInput(tok)) {
+            return end;
+        }
+        int terminal = terminalByKind[tok.kind.ordinal()];
+        if (terminal >= 0) {
+            return terminal;
+        }
+        if (tok.category == TokenType.IDENTIFIER) {
+            return id;
+        }
+        if (CONSTANTS.contains(tok.category) || tok.kind == TokenKind.TRUE || tok.kind == TokenKind.FALSE) {
+            return constant;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of productions.
+     * @return The production count.
+     */
+    public int productionCount() {
+        return lhs.length;
+    }
+
+    /**
+     * Gets the left side of a production.
+     * @param production The production index.
+     * @return The nonterminal it expands.
+     */
+    public int lhs(int production) {
+        return lhs[production];
+    }
+
+    /**
+     * Gets the right side of a production.
+     * @param production The production index.
+     * @return The symbols it expands to, empty for ε; must not be modified.
+     */
+    public int[] rhs(int production) {
+        return rhs[production];
+    }
+
+    /**
+     * Checks whether a nonterminal derives ε.
+     * @param nonterminal The nonterminal.
+     * @return True if it is nullable.
+     */
+    public boolean nullable(int nonterminal) {
+        return nullable[nonterminal - terminalCount];
+    }
+
+    /**
+     * Gets FIRST of a nonterminal.
+     * @param nonterminal The nonterminal.
+     * @return A copy of the terminals that can start it.
+     */
+    public BitSet first(int nonterminal) {
+        return (BitSet) first[nonterminal - terminalCount].clone();
+    }
+
+    /**
+     * Gets FOLLOW of a nonterminal.
+     * @param nonterminal The nonterminal.
+     * @return A copy of the terminals that can come right after it.
+     */
+    public BitSet follow(int nonterminal) {
+        return (BitSet) follow[nonterminal - terminalCount].clone();
+    }
+
+    /**
+     * Formats a production the way the grammar file writes it.
+     * @param production The production index.
+     * @return The production text.
+     */
+    public String toString(int production) {
+        StringBuilder sb = new StringBuilder(names[lhs[production]]).append(' ').append(ARROW);
+        if (rhs[production].length == 0) {
+            sb.append(' ').append(EPSILON);
+        }
+        for (int symbol : rhs[production]) {
+            sb.append(' ').append(names[symbol]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package SYNTAX_ANALYZER;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import LEXER.TokenType;
+import SYNTAX_ANALYZER.SyntaxAnalyzer.Token;
+
+/**
+ * Table-driven LL(1) parser. It keeps the symbols still to be matched on an explicit stack and
+ * picks every expansion from one token of lookahead, so it never recurses, never backtracks, and
+ * does work linear in the input however deeply the input nests. It reads each token once and
+ * never marks the source, so a RingTokenSource keeps only a few tokens buffered.
+ *
+ * A token spelled like a grammar word but lexed as an identifier (main, String) is read as that
+ * word, and as ID where the table has no entry for the word, so such names stay usable as
+ * identifiers.
+ */
+public class LL1Parser {
+    private final LL1Table table;
+    private final Grammar grammar;
+    private final TokenSource source;
+    private final PrintStream out;
+    private final PrintStream err;
+    private int[] stack = new int[64];
+    private int depth;
+
+    // Parse tokens from a source with the bundled grammar, reporting to System.out and System.err
+    public LL1Parser(TokenSource source) {
+        this(LL1Table.standard(), source, System.out, System.err);
+    }
+
+    // Parse tokens from a source with the given table and separate result and error streams
+    public LL1Parser(LL1Table table, TokenSource source, PrintStream out, PrintStream err) {
+        this.table = table;
+        this.grammar = table.getGrammar();
+        this.source = source;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Parses the whole input, stopping at the first syntax error.
+     * @return True if the input derives from the start symbol.
+     */
+    public boolean parse() {
+        depth = 0;
+        push(grammar.start());
+        while (depth > 0) {
+            int top = stack[--depth];
+            Token tok = source.peek(0);
+            int terminal = tok == null ? grammar.end() : grammar.terminalOf(tok);
+            if (grammar.isTerminal(top)) {
+                if (top != terminal && !(top == grammar.id() && isIdentifier(tok))) {
+                    reportError("'" + grammar.name(top) + "'", tok);
+                    return false;
+                }
+                if (top != grammar.end()) {
+                    source.next();
+                }
+                continue;
+            }
+            int production = terminal < 0 ? -1 : table.predict(top, terminal);
+            if (production < 0 && isIdentifier(tok)) {
+                production = table.predict(top, grammar.id());
+            }
+            if (production < 0) {
+                reportError(grammar.name(top) + ", one of " + table.expected(top), tok);
+                return false;
+            }
+            // Push the body right to left so its first symbol is on top.
+            int[] body = grammar.rhs(production);
+            for (int i = body.length - 1; i >= 0; i--) {
+                push(body[i]);
+            }
+        }
+        out.println("Parsing Successful !!!");
+        return true;
+    }
+
+    private void push(int symbol) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = symbol;
+    }
+
+    private static boolean isIdentifier(Token tok) {
+        return tok != null && tok.category == TokenType.IDENTIFIER;
+    }
+
+    // Same format as SyntaxAnalyzer's errors
+    private void reportError(String expected, Token found) {
+        err.println("SYNTAX ERROR at line " +
+            (found != null ? found.line : "EOF") +
+            ": Expected " + expected + " but found '" +
+            (found != null ? found.value : "EOF") + "'");
+    }
+}
@@ -0,0 +1,139 @@
+package SYNTAX_ANALYZER;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Predictive parse table of a grammar: for each nonterminal and lookahead terminal, the one
+ * production to expand. A production A → α goes in every column of FIRST(α), and of FOLLOW(A)
+ * when α derives ε. A cell that two productions want is a conflict; it is recorded and keeps
+ * the production listed first in the grammar file.
+ */
+public final class LL1Table {
+    private static LL1Table standard;
+
+    private final Grammar grammar;
+    // Production per (nonterminal, terminal), row-major, -1 where the lookahead is an error.
+    private final int[] cells;
+    private final List<String> conflicts;
+
+    /**
+     * Builds the table for a grammar.
+     * @param grammar The grammar.
+     */
+    public LL1Table(Grammar grammar) {
+        this.grammar = grammar;
+        int terminals = grammar.terminalCount();
+        this.cells = new int[(grammar.symbolCount() - terminals) * terminals];
+        Arrays.fill(cells, -1);
+        List<String> conflicts = new ArrayList<>();
+        BitSet lookahead = new BitSet(terminals);
+        for (int p = 0; p < grammar.productionCount(); p++) {
+            int row = (grammar.lhs(p) - terminals) * terminals;
+            lookahead.clear();
+            if (grammar.addFirst(grammar.rhs(p), 0, lookahead)) {
+                lookahead.or(grammar.follow(grammar.lhs(p)));
+            }
+            for (int t = lookahead.nextSetBit(0); t >= 0; t = lookahead.nextSetBit(t + 1)) {
+                int existing = cells[row + t];
+                if (existing < 0) {
+                    cells[row + t] = p;
+                } else {
+                    conflicts.add(grammar.name(grammar.lhs(p)) + " on '" + grammar.name(t) + "': "
+                        + grammar.toString(existing) + " (kept) vs " + grammar.toString(p));
+                }
+            }
+        }
+        this.conflicts = Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * Gets the table for the grammar bundled with the parser, building it on first use.
+     * @return The shared table.
+     * @throws IllegalStateException If the grammar file is missing or cannot be read.
+     */
+    public static synchronized LL1Table standard() {
+        if (standard == null) {
+            standard = new LL1Table(Grammar.standard());
+        }
+        return standard;
+    }
+
+    /**
+     * Gets the grammar the table was built from.
+     * @return The grammar.
+     */
+    public Grammar getGrammar() {
+        return grammar;
+    }
+
+    /**
+     * Looks up the production to expand.
+     * @param nonterminal The nonterminal on top of the stack.
+     * @param terminal The lookahead terminal.
+     * @return The production index, or -1 if the lookahead cannot start or follow the nonterminal.
+     */
+    public int predict(int nonterminal, int terminal) {
+        return cells[(nonterminal - grammar.terminalCount()) * grammar.terminalCount() + terminal];
+    }
+
+    /**
+     * Lists the terminals with a production for a nonterminal, for error messages.
+     * @param nonterminal The nonterminal.
+     * @return The terminal names, in terminal order.
+     */
+    public List<String> expected(int nonterminal) {
+        List<String> names = new ArrayList<>();
+        for (int t = 0; t < grammar.terminalCount(); t++) {
+            if (predict(nonterminal, t) >= 0) {
+                names.add(grammar.name(t));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Gets the cells more than one production wanted, one line each.
+     * @return The conflicts, empty if the grammar is LL(1).
+     */
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Main method to print FIRST and FOLLOW of every nonterminal and the table's conflicts.
+     * @param args Command line arguments (optional grammar file; the bundled grammar by default).
+     */
+    public static void main(String[] args) {
+        LL1Table table;
+        try {
+            table = new LL1Table(args.length > 0 ? Grammar.load(Paths.get(args[0])) : Grammar.standard());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading grammar: " + e.getMessage());
+            return;
+        }
+        Grammar grammar = table.getGrammar();
+        for (int n = grammar.terminalCount(); n < grammar.symbolCount(); n++) {
+            System.out.println(grammar.name(n) + (grammar.nullable(n) ? " (nullable)" : ""));
+            System.out.println("  FIRST  " + names(grammar, grammar.first(n)));
+            System.out.println("  FOLLOW " + names(grammar, grammar.follow(n)));
+        }
+        System.out.println(grammar.productionCount() + " productions, " + table.getConflicts().size() + " conflicts");
+        for (String conflict : table.getConflicts()) {
+            System.out.println("  " + conflict);
+        }
+    }
+
+    private static String names(Grammar grammar, BitSet terminals) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int t = terminals.nextSetBit(0); t >= 0; t = terminals.nextSetBit(t + 1)) {
+            sb.append(sb.length() > 1 ? " " : "").append(grammar.name(t));
+        }
+        return sb.append('}').toString();
+    }
+}
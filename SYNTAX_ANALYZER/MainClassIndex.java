@@ -0,0 +1,85 @@
+package SYNTAX_ANALYZER;
+
+import java.util.BitSet;
+import java.util.function.IntFunction;
+
+/**
+ * The class bodies of a token sequence that hold a main method header, found in one linear pass
+ * before parsing. Indexes are token positions as a TokenSource reports them. For every '{' it
+ * records whether a main method header starts after it and before the next '}', the same test
+ * containsMainMethod() makes, so the parser can tell the main class apart without scanning its
+ * body. This began as a table of matching '{}', '()' and '[]' pairs; nothing used the pairs, so
+ * only this lookup was kept.
+ */
+public final class MainClassIndex {
+    private static final String[] MAIN_HEADER = { "public", "static", "void", "main" };
+
+    // Number of tokens indexed.
+    private final int count;
+    // '{' tokens followed by a main method header before the next '}'.
+    private final BitSet hasMain;
+
+    private MainClassIndex(int count, BitSet hasMain) {
+        this.count = count;
+        this.hasMain = hasMain;
+    }
+
+    /**
+     * Indexes a token sequence.
+     * @param count The number of tokens.
+     * @param values The value of each token by position.
+     * @return The index.
+     */
+    public static MainClassIndex of(int count, IntFunction<String> values) {
+        String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = values.apply(i);
+        }
+
+        // Backwards, tracking the nearest '}' and main header ahead of each '{'.
+        BitSet hasMain = new BitSet(count);
+        int nextClose = count;
+        int nextMain = count;
+        for (int i = count - 1; i >= 0; i--) {
+            if (isMainHeader(tokens, i)) {
+                nextMain = i;
+            }
+            if ("}".equals(tokens[i])) {
+                nextClose = i;
+            } else if ("{".equals(tokens[i]) && nextMain < nextClose) {
+                hasMain.set(i);
+            }
+        }
+        return new MainClassIndex(count, hasMain);
+    }
+
+    /**
+     * Checks whether a main method header (public static void main) starts after a '{' and before
+     * the next '}', which is how the parser has always recognized the main class.
+     * @param open The position of the '{'.
+     * @return True if the brace opens a main class body.
+     */
+    public boolean hasMain(int open) {
+        return open >= 0 && hasMain.get(open);
+    }
+
+    /**
+     * Gets the number of tokens indexed.
+     * @return The token count.
+     */
+    public int size() {
+        return count;
+    }
+
+    private static boolean isMainHeader(String[] tokens, int start) {
+        if (start + MAIN_HEADER.length > tokens.length) {
+            return false;
+        }
+        for (int k = 0; k < MAIN_HEADER.length; k++) {
+            if (!MAIN_HEADER[k].equals(tokens[start + k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,152 @@
+package SYNTAX_ANALYZER;
+
+import java.util.Arrays;
+
+/**
+ * Packrat memo for a backtracking parser: the outcome of a rule at a token position, so a rule
+ * tried again at the same position after backtracking is answered without re-parsing.
+ * Entries live in open-addressed primitive arrays keyed by (rule, position); nothing is boxed.
+ */
+public final class MemoTable {
+    /** Largest rule id plus one. */
+    public static final int MAX_RULES = 256;
+    private static final long EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    // Per entry: end position << 1, plus 1 if the rule succeeded.
+    private int[] outcomes = new int[INITIAL_CAPACITY];
+    private int size;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs an empty MemoTable.
+     */
+    public MemoTable() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Looks up a rule's outcome, counting a hit or a miss.
+     * @param rule The rule id, below MAX_RULES.
+     * @param position The token position the rule started at.
+     * @return The entry, decoded with end() and succeeded(), or -1 if the rule has not run there.
+     */
+    public int lookup(int rule, int position) {
+        long key = key(rule, position);
+        for (int slot = slot(key, keys.length); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                hits++;
+                return outcomes[slot];
+            }
+        }
+        misses++;
+        return -1;
+    }
+
+    /**
+     * Records a rule's outcome.
+     * @param rule The rule id, below MAX_RULES.
+     * @param position The token position the rule started at.
+     * @param end The position the rule left the input at.
+     * @param success Whether the rule succeeded.
+     */
+    public void store(int rule, int position, int end, boolean success) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize();
+        }
+        long key = key(rule, position);
+        int slot = slot(key, keys.length);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        outcomes[slot] = end << 1 | (success ? 1 : 0);
+    }
+
+    /**
+     * Decodes the end position of an entry.
+     * @param entry An entry returned by lookup().
+     * @return The position the rule left the input at.
+     */
+    public static int end(int entry) {
+        return entry >>> 1;
+    }
+
+    /**
+     * Decodes whether an entry records a success.
+     * @param entry An entry returned by lookup().
+     * @return True if the rule succeeded.
+     */
+    public static boolean succeeded(int entry) {
+        return (entry & 1) != 0;
+    }
+
+    /**
+     * Removes every entry and zeroes the counters, for the next compilation unit.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return The entry count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of lookups that found an entry since the last clear().
+     * @return The hit count.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that found no entry since the last clear().
+     * @return The miss count.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldOutcomes = outcomes;
+        keys = new long[oldKeys.length * 2];
+        outcomes = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i], keys.length);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+                keys[slot] = oldKeys[i];
+                outcomes[slot] = oldOutcomes[i];
+            }
+        }
+    }
+
+    private static long key(int rule, int position) {
+        if (rule < 0 || rule >= MAX_RULES) {
+            throw new IllegalArgumentException("Rule id out of range: " + rule);
+        }
+        return (long) position * MAX_RULES + rule;
+    }
+
+    private static int slot(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (capacity - 1);
+    }
+}
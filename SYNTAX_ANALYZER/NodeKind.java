@@ -0,0 +1,70 @@
+package SYNTAX_ANALYZER;
+
+/**
+ * Kinds of SyntaxTree nodes, with the children each kind has, in order.
+ * Optional children are left out when absent unless noted; EMPTY stands in where a
+ * position has to be kept.
+ */
+public enum NodeKind {
+    // Declarations
+    /** Whole input: IMPORT*, CLASS*; the main class is the CLASS holding a MAIN_METHOD. */
+    PROGRAM,
+    /** import: the imported NAME or QUALIFIED_NAME; text is "*" for an on-demand import. */
+    IMPORT,
+    /** class: MODIFIER*, NAME, EXTENDS?, then ATTRIBUTE, CONSTRUCTOR, METHOD or MAIN_METHOD members. */
+    CLASS,
+    /** Leaf: a modifier keyword. */
+    MODIFIER,
+    /** Leaf: the superclass name. */
+    EXTENDS,
+    /** Field: MODIFIER*, TYPE, NAME, initializer expression?. */
+    ATTRIBUTE,
+    /** Constructor: MODIFIER*, NAME, PARAMETER*, BLOCK. */
+    CONSTRUCTOR,
+    /** Method: MODIFIER*, TYPE (void included), NAME, PARAMETER*, BLOCK. */
+    METHOD,
+    /** public static void main: NAME of the String[] parameter, BLOCK. */
+    MAIN_METHOD,
+    /** Parameter: TYPE, NAME. */
+    PARAMETER,
+    /** Leaf: a data type or void. */
+    TYPE,
+
+    // Statements
+    /** { ... }: statements. */
+    BLOCK,
+    /** if: condition, then statement, else statement?. */
+    IF,
+    /** while: condition, body statement. */
+    WHILE,
+    /** for: initializer, condition, update, body; EMPTY for each part left out. */
+    FOR,
+    /** return: value expression?. */
+    RETURN,
+    /** Local variable: TYPE, NAME, initializer expression?. */
+    DECLARATION,
+    /** Assignment statement, text is the operator: NAME, value expression. */
+    ASSIGNMENT,
+    /** Expression used as a statement, method calls included: the expression. */
+    EXPRESSION_STATEMENT,
+    /** Leaf: an empty statement or a left-out for part. */
+    EMPTY,
+    /** Leaf at the token where a statement or class member failed, standing for what recovery skipped. */
+    ERROR,
+
+    // Expressions
+    /** Binary operation, text is the operator and the token is the operator's: left, right. */
+    BINARY,
+    /** Unary operation, text is the operator: operand. Parentheses leave no node. */
+    UNARY,
+    /** Method call: NAME or QUALIFIED_NAME of the method, then the arguments. */
+    CALL,
+    /** new, text is the class name: the constructor arguments. */
+    NEW,
+    /** Leaf: a literal constant, text is as written. */
+    LITERAL,
+    /** Leaf: an identifier. */
+    NAME,
+    /** Dotted name: NAME+. */
+    QUALIFIED_NAME
+}
@@ -0,0 +1,167 @@
+package SYNTAX_ANALYZER;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import LEXER.MetricsWriter;
+import SYNTAX_ANALYZER.ParseTrace.Rule;
+
+/**
+ * Parser counters, shared by any number of SyntaxAnalyzers on any threads: rule calls,
+ * backtracking and the tokens it makes the parser read again, parse outcomes, and the time
+ * spent loading token files. A parser tallies into plain arrays of its own during PS() and adds
+ * them here when the parse ends, so the rules pay an array increment and nothing locks.
+ */
+public final class ParseMetrics {
+    /** Places where the parser moves back to a saved position. */
+    public enum Site {
+        SST("SST"), ASSIGNMENT_OR_CALL("assignment_or_call"), PRIMARY("primary"),
+        IS_MAIN_CLASS("isMainClass"), CONTAINS_MAIN_METHOD("containsMainMethod"),
+        IS_ATTRIBUTE("isAttribute"), IS_CONSTRUCTOR("isConstructor"), IS_METHOD("isMethod"),
+        IS_MAIN_METHOD_START("isMainMethodStart");
+
+        private final String label;
+
+        Site(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gets the name of the parser method that backtracks.
+         * @return The label.
+         */
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final Rule[] RULES = Rule.values();
+    private static final Site[] SITES = Site.values();
+
+    private final LongAdder parses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder loadedTokens = new LongAdder();
+    private final LongAdder[] calls = adders(RULES.length);
+    private final LongAdder[] backtracks = adders(SITES.length);
+    private final LongAdder[] rescanned = adders(SITES.length);
+
+    /**
+     * Adds one parse.
+     * @param success Whether it succeeded.
+     * @param consumed The number of tokens it got through.
+     * @param elapsed The time it took, in nanoseconds.
+     * @param ruleCalls Calls by Rule ordinal.
+     * @param siteBacktracks Backtracks by Site ordinal.
+     * @param siteRescanned Tokens moved back over by Site ordinal.
+     */
+    void add(boolean success, int consumed, long elapsed, long[] ruleCalls, long[] siteBacktracks, long[] siteRescanned) {
+        parses.increment();
+        if (!success) {
+            failures.increment();
+        }
+        tokens.add(consumed);
+        nanos.add(elapsed);
+        for (int i = 0; i < RULES.length; i++) {
+            if (ruleCalls[i] != 0) {
+                calls[i].add(ruleCalls[i]);
+            }
+        }
+        for (int i = 0; i < SITES.length; i++) {
+            if (siteBacktracks[i] != 0) {
+                backtracks[i].add(siteBacktracks[i]);
+                rescanned[i].add(siteRescanned[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds the loading of a token file.
+     * @param count The number of tokens loaded.
+     * @param elapsed The time it took, in nanoseconds.
+     */
+    public void addLoad(int count, long elapsed) {
+        loads.increment();
+        loadedTokens.add(count);
+        loadNanos.add(elapsed);
+    }
+
+    /**
+     * Gets the number of parses recorded.
+     * @return The parse count.
+     */
+    public long parses() {
+        return parses.sum();
+    }
+
+    /**
+     * Gets the number of calls of a rule.
+     * @param rule The rule.
+     * @return The call count.
+     */
+    public long calls(Rule rule) {
+        return calls[rule.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of times the parser moved back at a site.
+     * @param site The site.
+     * @return The backtrack count.
+     */
+    public long backtracks(Site site) {
+        return backtracks[site.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of tokens the parser moved back over at a site, each of which it reads again.
+     * @param site The site.
+     * @return The token count.
+     */
+    public long rescanned(Site site) {
+        return rescanned[site.ordinal()].sum();
+    }
+
+    /**
+     * Writes the counters. The sums are read one by one, so a snapshot taken while parsers run
+     * may be slightly inconsistent.
+     * @param out The writer.
+     */
+    public void export(MetricsWriter out) {
+        long loadCount = loads.sum();
+        if (loadCount > 0) {
+            out.family("parser_token_loads_total", "counter", "Token files loaded").sample(loadCount);
+            out.family("parser_token_load_seconds_total", "counter", "Time spent loading token files")
+                .sample(loadNanos.sum() / 1e9);
+            out.family("parser_token_load_tokens_total", "counter", "Tokens loaded from token files")
+                .sample(loadedTokens.sum());
+        }
+        out.family("parser_parses_total", "counter", "Parses run, by outcome")
+            .sample("outcome", "success", parses.sum() - failures.sum())
+            .sample("outcome", "failure", failures.sum());
+        out.family("parser_seconds_total", "counter", "Time spent parsing").sample(nanos.sum() / 1e9);
+        out.family("parser_tokens_total", "counter", "Tokens parsed").sample(tokens.sum());
+        out.family("parser_rule_calls_total", "counter", "Grammar rule calls, by rule");
+        for (Rule rule : RULES) {
+            out.sample("rule", rule.label(), calls[rule.ordinal()].sum());
+        }
+        out.family("parser_backtracks_total", "counter", "Moves back to a saved position, by parser method");
+        for (Site site : SITES) {
+            out.sample("site", site.label(), backtracks[site.ordinal()].sum());
+        }
+        out.family("parser_rescanned_tokens_total", "counter",
+            "Tokens read again after moving back over them, by parser method");
+        for (Site site : SITES) {
+            out.sample("site", site.label(), rescanned[site.ordinal()].sum());
+        }
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
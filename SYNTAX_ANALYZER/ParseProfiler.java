@@ -0,0 +1,305 @@
+package SYNTAX_ANALYZER;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import LEXER.MetricsWriter;
+import SYNTAX_ANALYZER.ParseTrace.Rule;
+
+/**
+ * Times every rule a SyntaxAnalyzer enters, for finding where a slow parse spends its time.
+ * Each rule gets a call count, inclusive time (the rule and everything it called), exclusive
+ * time (the rule alone) and a histogram of inclusive call times in power-of-two nanosecond
+ * buckets, which costs one array increment per call. A recursive rule's inclusive time counts
+ * its outermost calls only, so nested calls are not added twice. Backtracking is charged to the
+ * line of the token the parser moved back to, and to the input the parser was given the name of,
+ * giving the lines that cause the most re-parsing.
+ *
+ * A profiler belongs to one parser at a time and keeps adding over parses until clear();
+ * profilers of parsers on other threads are combined with add(). Two clock reads per rule call
+ * roughly double the cost of a parse, so profile a sample of parses rather than all of them.
+ */
+public final class ParseProfiler {
+    private static final Rule[] RULES = Rule.values();
+    // Bucket b counts calls of 2^(b-1) to 2^b - 1 nanoseconds; bucket 0 counts 0
+    private static final int BUCKETS = 64;
+    /** Number of rules and of lines report() lists by default. */
+    public static final int DEFAULT_TOP = 15;
+
+    private final long[] calls = new long[RULES.length];
+    private final long[] inclusive = new long[RULES.length];
+    private final long[] exclusive = new long[RULES.length];
+    private final long[] maximum = new long[RULES.length];
+    private final long[] histogram = new long[RULES.length * BUCKETS];
+    // Active calls per rule, so only the outermost call of a recursive rule adds inclusive time
+    private final int[] active = new int[RULES.length];
+    // Call stack: the rule, when it was entered, and the inclusive time of the rules it called
+    private int[] stackRules = new int[64];
+    private long[] stackStarts = new long[64];
+    private long[] stackChildren = new long[64];
+    private int depth;
+    // Backtracking by line per input name, null for a parse of an unnamed input; current is the
+    // input of the parse under way
+    private final Map<String, Lines> lines = new LinkedHashMap<>();
+    private Lines current;
+    private long parses;
+
+    /**
+     * Starts a parse, dropping calls left open by one that ended in an exception.
+     * @param source The name of the input, to charge its backtracking to, or null.
+     */
+    void begin(String source) {
+        while (depth > 0) {
+            active[stackRules[--depth]]--;
+        }
+        parses++;
+        current = lines.computeIfAbsent(source, name -> new Lines());
+    }
+
+    /**
+     * Enters a rule.
+     * @param rule The rule.
+     */
+    void enter(Rule rule) {
+        if (depth == stackRules.length) {
+            stackRules = Arrays.copyOf(stackRules, depth * 2);
+            stackStarts = Arrays.copyOf(stackStarts, depth * 2);
+            stackChildren = Arrays.copyOf(stackChildren, depth * 2);
+        }
+        stackRules[depth] = rule.ordinal();
+        stackChildren[depth] = 0;
+        active[rule.ordinal()]++;
+        stackStarts[depth++] = System.nanoTime();
+    }
+
+    /**
+     * Leaves the rule entered last.
+     */
+    void exit() {
+        long now = System.nanoTime();
+        int rule = stackRules[--depth];
+        long elapsed = now - stackStarts[depth];
+        calls[rule]++;
+        exclusive[rule] += elapsed - stackChildren[depth];
+        if (--active[rule] == 0) {
+            inclusive[rule] += elapsed;
+        }
+        if (elapsed > maximum[rule]) {
+            maximum[rule] = elapsed;
+        }
+        histogram[rule * BUCKETS + 64 - Long.numberOfLeadingZeros(elapsed)]++;
+        if (depth > 0) {
+            stackChildren[depth - 1] += elapsed;
+        }
+    }
+
+    /**
+     * Charges a backtrack to a line.
+     * @param line The line of the token moved back to, or -1 if unknown.
+     * @param tokens The number of tokens moved back over.
+     */
+    void backtrack(int line, int tokens) {
+        if (line >= 0 && current != null) {
+            current.add(line, tokens, 1);
+        }
+    }
+
+    /**
+     * Adds another profiler's totals to this one's, as when combining the profiles of parsers
+     * that ran on different threads. Neither profiler may be in use during the call.
+     * @param other The profiler to add.
+     */
+    public void add(ParseProfiler other) {
+        for (int i = 0; i < RULES.length; i++) {
+            calls[i] += other.calls[i];
+            inclusive[i] += other.inclusive[i];
+            exclusive[i] += other.exclusive[i];
+            maximum[i] = Math.max(maximum[i], other.maximum[i]);
+        }
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        for (Map.Entry<String, Lines> entry : other.lines.entrySet()) {
+            Lines into = lines.computeIfAbsent(entry.getKey(), name -> new Lines());
+            Lines from = entry.getValue();
+            for (int line = 0; line < from.rescanned.length; line++) {
+                if (from.backtracks[line] > 0) {
+                    into.add(line, from.rescanned[line], from.backtracks[line]);
+                }
+            }
+        }
+        parses += other.parses;
+    }
+
+    /**
+     * Removes everything recorded.
+     */
+    public void clear() {
+        Arrays.fill(calls, 0);
+        Arrays.fill(inclusive, 0);
+        Arrays.fill(exclusive, 0);
+        Arrays.fill(maximum, 0);
+        Arrays.fill(histogram, 0);
+        Arrays.fill(active, 0);
+        lines.clear();
+        current = null;
+        depth = 0;
+        parses = 0;
+    }
+
+    /**
+     * Gets the number of parses profiled.
+     * @return The parse count.
+     */
+    public long parses() {
+        return parses;
+    }
+
+    /**
+     * Gets the number of completed calls of a rule.
+     * @param rule The rule.
+     * @return The call count.
+     */
+    public long calls(Rule rule) {
+        return calls[rule.ordinal()];
+    }
+
+    /**
+     * Gets the time spent in a rule and the rules it called, nested calls of itself counted once.
+     * @param rule The rule.
+     * @return The time in nanoseconds.
+     */
+    public long inclusiveNanos(Rule rule) {
+        return inclusive[rule.ordinal()];
+    }
+
+    /**
+     * Gets the time spent in a rule outside the rules it called.
+     * @param rule The rule.
+     * @return The time in nanoseconds.
+     */
+    public long exclusiveNanos(Rule rule) {
+        return exclusive[rule.ordinal()];
+    }
+
+    /**
+     * Estimates a percentile of a rule's call times from its histogram.
+     * @param rule The rule.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The upper bound of the bucket holding the percentile in nanoseconds, at most the
+     *     longest call, or 0 if the rule was not called.
+     */
+    public long percentileNanos(Rule rule, double percentile) {
+        long count = calls[rule.ordinal()];
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[rule.ordinal() * BUCKETS + b];
+            if (seen >= rank) {
+                return b == 0 ? 0 : Math.min(maximum[rule.ordinal()], (1L << b) - 1);
+            }
+        }
+        return maximum[rule.ordinal()];
+    }
+
+    /**
+     * Prints the rules ranked by exclusive time, then the lines that were parsed again the most,
+     * each with its input's name when more than one input was profiled.
+     * @param out The stream to print to.
+     * @param top The number of rules and of lines to list.
+     */
+    public void report(PrintStream out, int top) {
+        long total = 0;
+        for (long nanos : exclusive) {
+            total += nanos;
+        }
+        out.println("Parse profile: " + parses + " parse" + (parses == 1 ? "" : "s") + ", "
+            + String.format("%.3f", total / 1e6) + " ms in rules");
+        out.println(String.format("  %-24s %11s %11s %11s %6s %9s %9s %9s",
+            "rule", "calls", "excl ms", "incl ms", "excl%", "p50 ns", "p99 ns", "max ns"));
+        List<Rule> ranked = new ArrayList<>();
+        for (Rule rule : RULES) {
+            if (calls[rule.ordinal()] > 0) {
+                ranked.add(rule);
+            }
+        }
+        ranked.sort((a, b) -> Long.compare(exclusive[b.ordinal()], exclusive[a.ordinal()]));
+        for (Rule rule : ranked.subList(0, Math.min(top, ranked.size()))) {
+            int r = rule.ordinal();
+            out.println(String.format("  %-24s %11d %11.3f %11.3f %5.1f%% %9d %9d %9d",
+                rule.label(), calls[r], exclusive[r] / 1e6, inclusive[r] / 1e6,
+                total == 0 ? 0.0 : 100.0 * exclusive[r] / total,
+                percentileNanos(rule, 50), percentileNanos(rule, 99), maximum[r]));
+        }
+        // Each line as its input's place in sources and its line number
+        List<String> sources = new ArrayList<>(lines.keySet());
+        List<Lines> tables = new ArrayList<>(lines.values());
+        List<int[]> hot = new ArrayList<>();
+        for (int s = 0; s < tables.size(); s++) {
+            for (int line = 0; line < tables.get(s).rescanned.length; line++) {
+                if (tables.get(s).backtracks[line] > 0) {
+                    hot.add(new int[] { s, line });
+                }
+            }
+        }
+        if (hot.isEmpty()) {
+            return;
+        }
+        hot.sort((a, b) -> Long.compare(tables.get(b[0]).rescanned[b[1]], tables.get(a[0]).rescanned[a[1]]));
+        boolean named = sources.size() > 1;
+        out.println(named ? "  Lines parsed again the most, by input:" : "  Lines parsed again the most:");
+        for (int[] at : hot.subList(0, Math.min(top, hot.size()))) {
+            Lines table = tables.get(at[0]);
+            out.println("    " + (named ? sources.get(at[0]) + ":" + at[1] : "line " + at[1]) + ": "
+                + table.rescanned[at[1]] + " tokens re-scanned in " + table.backtracks[at[1]] + " backtracks");
+        }
+    }
+
+    // Tokens moved back over and moves back in one input, indexed by line number
+    private static final class Lines {
+        private long[] rescanned = new long[256];
+        private long[] backtracks = new long[256];
+
+        void add(int line, long tokens, long moves) {
+            if (line >= rescanned.length) {
+                int capacity = Math.max(rescanned.length * 2, line + 1);
+                rescanned = Arrays.copyOf(rescanned, capacity);
+                backtracks = Arrays.copyOf(backtracks, capacity);
+            }
+            rescanned[line] += tokens;
+            backtracks[line] += moves;
+        }
+    }
+
+    /**
+     * Writes the call counts and times per rule.
+     * @param out The writer.
+     */
+    public void export(MetricsWriter out) {
+        out.family("parser_profiled_parses_total", "counter", "Parses profiled").sample(parses);
+        out.family("parser_profiled_rule_calls_total", "counter", "Completed rule calls in profiled parses, by rule");
+        for (Rule rule : RULES) {
+            out.sample("rule", rule.label(), calls[rule.ordinal()]);
+        }
+        out.family("parser_rule_exclusive_seconds_total", "counter", "Time in a rule outside the rules it called, by rule");
+        for (Rule rule : RULES) {
+            out.sample("rule", rule.label(), exclusive[rule.ordinal()] / 1e9);
+        }
+        out.family("parser_rule_inclusive_seconds_total", "counter",
+            "Time in a rule and the rules it called, nested calls of itself counted once, by rule");
+        for (Rule rule : RULES) {
+            out.sample("rule", rule.label(), inclusive[rule.ordinal()] / 1e9);
+        }
+        out.family("parser_rule_p99_seconds", "gauge", "Estimated 99th percentile of rule call time, by rule");
+        for (Rule rule : RULES) {
+            out.sample("rule", rule.label(), percentileNanos(rule, 99) / 1e9);
+        }
+    }
+}
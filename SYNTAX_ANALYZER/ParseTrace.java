@@ -0,0 +1,180 @@
+package SYNTAX_ANALYZER;
+
+import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Structured trace of the rules a parse went through, kept in a fixed-size ring of packed
+ * events. Each event is one long: the token position, its line, the rule and what happened.
+ * Nothing is formatted until dump(), which the parser calls only when a parse fails, so the
+ * last rule entries for a bad input are available without printing on every parse.
+ * A disabled trace has empty masks and costs one test per event site.
+ */
+public final class ParseTrace {
+    /** How much to record. */
+    public enum Level {
+        /** Nothing. */
+        OFF,
+        /** Rule entries. */
+        RULES,
+        /** Rule entries, backtracking and successful alternatives. */
+        DETAIL
+    }
+
+    /** What happened in a rule. */
+    public enum Event {
+        /** The rule was entered. */
+        ENTER,
+        /** The rule gave up an alternative and moved back. */
+        BACKTRACK,
+        /** The rule matched an alternative. */
+        SUCCESS
+    }
+
+    /** Rules and lookaheads that record events; at most 64, the width of the rule masks. */
+    public enum Rule {
+        PS("<PS>"), IMPORT_STATEMENTS("<import_statements>"), IMPORT_ST("<import_st>"),
+        QUALIFIED_NAME("<qualified_name>"), CLASSES("<classes>"), MAIN_CLASS("<main_class>"),
+        CLASS("<class>"), CLASS_HEADER("<class_header>"), CLASS_BODY("<class_body>"),
+        ATTRIBUTE("<attribute>"), CONSTRUCTOR("<constructor>"), METHOD("<method>"),
+        METHOD_BODY("<method_body>"), MAIN_METHOD("<main_method>"), SST("<SST>"),
+        DECLARATION("declaration"), ASSIGNMENT_OR_CALL("assignment_or_call"), METHOD_CALL("method call"),
+        ASSIGNMENT("assignment"), EXPRESSION_STATEMENT("expression statement"), PRIMARY("primary"),
+        IMPORT_TAIL("<import_tail>"), QUALIFIED_NAME_TAIL("<qualified_name_tail>"), MODIFIERS("<modifiers>"),
+        INHERITANCE("<inheritance>"), CLASS_MEMBER("<class_member>"), CONSTRUCTOR_HEADER("<constructor_header>"),
+        METHOD_HEADER("<method_header>"), PARAMETERS("<parameters>"), PARAMETER_PRIME("<parameter_prime>"),
+        PARAMETER("<parameter>"), MST("<MST>"), IF_STATEMENT("<if_statement>"), WHILE_STATEMENT("<while_statement>"),
+        FOR_STATEMENT("<for_statement>"), RETURN_STATEMENT("<return_statement>"), CONDITION("<condition>"),
+        LOOP_BODY("<loop_body>"), F1("<F1>"), F2("<F2>"), F3("<F3>"), EXPRESSION("<expression>"),
+        BINARY_EXPRESSION("<binary_expression>"), F("<F>"), CONSTRUCTOR_CALL("<constructor_call>"), ARGS("<args>"),
+        ARGS_PRIME("<args_prime>"), DATA_TYPE("<dataType>"),
+        IS_MAIN_CLASS("isMainClass"), CONTAINS_MAIN_METHOD("containsMainMethod"), IS_ATTRIBUTE("isAttribute"),
+        IS_CONSTRUCTOR("isConstructor"), IS_METHOD("isMethod"), IS_MAIN_METHOD_START("isMainMethodStart");
+
+        private final String label;
+
+        Rule(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Gets the rule's name as the grammar writes it.
+         * @return The label.
+         */
+        public String label() {
+            return label;
+        }
+    }
+
+    /** Number of events a trace keeps by default. */
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final ParseTrace DISABLED = new ParseTrace(Level.OFF, EnumSet.noneOf(Rule.class), 1);
+    private static final Rule[] RULES = Rule.values();
+    private static final Event[] EVENTS = Event.values();
+    // Low bits of an event: 2 bits event, 6 bits rule, 24 bits line; the position takes the high half.
+    private static final int LINE_BITS = 24;
+
+    // Bit per rule ordinal, one mask per event.
+    private final long enterMask;
+    private final long detailMask;
+    private final long[] events;
+    private long count;
+
+    /**
+     * Constructs a trace of every rule.
+     * @param level What to record.
+     * @param capacity The number of most recent events to keep, rounded up to a power of two.
+     */
+    public ParseTrace(Level level, int capacity) {
+        this(level, EnumSet.allOf(Rule.class), capacity);
+    }
+
+    /**
+     * Constructs a trace of selected rules.
+     * @param level What to record.
+     * @param rules The rules to record events for.
+     * @param capacity The number of most recent events to keep, rounded up to a power of two.
+     */
+    public ParseTrace(Level level, Set<Rule> rules, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        long mask = 0;
+        for (Rule rule : rules) {
+            mask |= 1L << rule.ordinal();
+        }
+        this.enterMask = level == Level.OFF ? 0 : mask;
+        this.detailMask = level == Level.DETAIL ? mask : 0;
+        int size = Integer.highestOneBit(capacity);
+        this.events = new long[size < capacity ? size << 1 : size];
+    }
+
+    /**
+     * Gets the shared trace that records nothing.
+     * @return The disabled trace.
+     */
+    public static ParseTrace disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Checks whether an event would be recorded, so callers can skip gathering its arguments.
+     * @param rule The rule.
+     * @param event The event.
+     * @return True if record() would keep it.
+     */
+    public boolean isEnabled(Rule rule, Event event) {
+        return ((event == Event.ENTER ? enterMask : detailMask) & (1L << rule.ordinal())) != 0;
+    }
+
+    /**
+     * Records an event, overwriting the oldest one when the ring is full. Call only if isEnabled().
+     * @param rule The rule.
+     * @param event The event.
+     * @param position The token position.
+     * @param line The token's line, or -1 at the end of input.
+     */
+    public void record(Rule rule, Event event, int position, int line) {
+        long packed = (long) position << 32
+            | (long) (line & ((1 << LINE_BITS) - 1)) << 8
+            | rule.ordinal() << 2
+            | event.ordinal();
+        events[(int) count & (events.length - 1)] = packed;
+        count++;
+    }
+
+    /**
+     * Gets the number of events kept.
+     * @return The event count, at most the capacity.
+     */
+    public int size() {
+        return (int) Math.min(count, events.length);
+    }
+
+    /**
+     * Removes every event.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Prints the kept events, oldest first, one per line.
+     * @param out The stream to print to.
+     */
+    public void dump(PrintStream out) {
+        int size = size();
+        if (size == 0) {
+            return;
+        }
+        out.println("Last " + size + " of " + count + " parse events:");
+        for (long i = count - size; i < count; i++) {
+            long packed = events[(int) i & (events.length - 1)];
+            int line = (int) (packed >>> 8) & ((1 << LINE_BITS) - 1);
+            out.println("  " + EVENTS[(int) packed & 3] + " " + RULES[(int) (packed >>> 2) & 63].label
+                + " at token " + (int) (packed >>> 32)
+                + (line == (1 << LINE_BITS) - 1 ? " (EOF)" : " (line " + line + ")"));
+        }
+    }
+}
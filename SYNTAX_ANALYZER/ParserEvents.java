@@ -0,0 +1,103 @@
+package SYNTAX_ANALYZER;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the parser, disabled by default like those of the lexer.
+ * Enable them in a recording, for example with
+ * {@code -XX:StartFlightRecording:+compiler.Parse#enabled=true,+compiler.ClassParse#enabled=true},
+ * to line token loading, parses and the classes in them up with GC pauses and allocation.
+ */
+final class ParserEvents {
+    private ParserEvents() {
+    }
+
+    /** Tokens loaded from a file by SyntaxAnalyzer.main. */
+    @Name("compiler.LoadTokens")
+    @Label("Load Tokens")
+    @Category({"Compiler", "Parser"})
+    @Description("Tokens read from a token file")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class LoadTokens extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Format")
+        @Description("binary for a TokenFile, text for <line,type,value> lines")
+        String format;
+
+        @Label("Bytes")
+        @Description("Size of the file read")
+        @DataAmount
+        long bytes;
+
+        @Label("Tokens")
+        @Description("Tokens loaded, the EOF token included")
+        long tokens;
+
+        @Label("Outcome")
+        @Description("success, or the error that stopped the load")
+        String outcome;
+    }
+
+    /** One run of SyntaxAnalyzer.PS(). */
+    @Name("compiler.Parse")
+    @Label("Parse")
+    @Category({"Compiler", "Parser"})
+    @Description("Tokens parsed by a SyntaxAnalyzer")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Parse extends Event {
+        @Label("File")
+        @Description("Name of the source, or null if the SyntaxAnalyzer was not given one")
+        String file;
+
+        @Label("Tokens")
+        @Description("Tokens the parse got through")
+        long tokens;
+
+        @Label("Errors")
+        @Description("Statements and class members skipped after syntax errors")
+        int errors;
+
+        @Label("Outcome")
+        @Description("success, failure, or the exception that ended the parse")
+        String outcome;
+    }
+
+    /** One top-level class, the main class included, within a parse. */
+    @Name("compiler.ClassParse")
+    @Label("Class Parse")
+    @Category({"Compiler", "Parser"})
+    @Description("A top-level class parsed by a SyntaxAnalyzer")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class ClassParse extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Class")
+        @Description("Name of the class, or null if its header did not parse")
+        String className;
+
+        @Label("Line")
+        @Description("Line the class starts on")
+        int line;
+
+        @Label("Tokens")
+        @Description("Tokens the class took up, or got through before failing")
+        long tokens;
+
+        @Label("Outcome")
+        @Description("success, recovered when errors in it were skipped, failure, or an exception")
+        String outcome;
+    }
+}
@@ -0,0 +1,167 @@
+package SYNTAX_ANALYZER;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import SYNTAX_ANALYZER.SyntaxAnalyzer.Token;
+
+/**
+ * TokenSource that pulls token batches on demand and keeps only the window from the
+ * oldest open mark (or the current position) to the furthest lookahead in a ring buffer.
+ * The ring grows only while marks or lookahead need more room, so memory follows the
+ * lookahead depth rather than the input size. An EOF token is appended at the end of
+ * input unless the input already ends with one.
+ */
+public class RingTokenSource implements TokenSource {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Supplier<Token[]> batches;
+    private Token[] batch;
+    private int batchIndex;
+    private Token last;
+
+    private Token[] ring = new Token[INITIAL_CAPACITY];
+    // Absolute indexes: oldest kept token, one past the newest buffered token, and the current token.
+    private int base;
+    private int limit;
+    private int position;
+    private int[] marks = new int[16];
+    private int markCount;
+
+    /**
+     * Constructs a RingTokenSource.
+     * @param batches Supplies the next batch of tokens each call, or null at the end of input.
+     *                It may block while the producer catches up.
+     */
+    public RingTokenSource(Supplier<Token[]> batches) {
+        this.batches = batches;
+    }
+
+    @Override
+    public Token next() {
+        Token token = peek(0);
+        if (token != null) {
+            position++;
+        }
+        return token;
+    }
+
+    @Override
+    public Token peek(int k) {
+        int target = position + k;
+        while (target >= limit) {
+            if (!pull()) {
+                return null;
+            }
+        }
+        return ring[target & (ring.length - 1)];
+    }
+
+    @Override
+    public int position() {
+        return position;
+    }
+
+    @Override
+    public int mark() {
+        if (markCount == marks.length) {
+            marks = Arrays.copyOf(marks, markCount * 2);
+        }
+        marks[markCount++] = position;
+        return position;
+    }
+
+    @Override
+    public void reset(int mark) {
+        // Open marks are never discarded, so an open mark is always still buffered.
+        if (indexOf(mark) < 0) {
+            throw new IllegalStateException("Mark " + mark + " is not open");
+        }
+        position = mark;
+    }
+
+    @Override
+    public void skipTo(int position) {
+        if (position < this.position || position > limit) {
+            throw new IllegalStateException("Position " + position + " is not buffered ahead");
+        }
+        this.position = position;
+    }
+
+    @Override
+    public void release(int mark) {
+        int i = indexOf(mark);
+        if (i < 0) {
+            throw new IllegalStateException("Mark " + mark + " is not open");
+        }
+        System.arraycopy(marks, i + 1, marks, i, markCount - i - 1);
+        markCount--;
+    }
+
+    /**
+     * Gets the number of tokens currently buffered.
+     * @return The size of the kept window.
+     */
+    public int buffered() {
+        return limit - base;
+    }
+
+    // Index of an open mark in marks, or -1. Marks are normally used innermost first, so the
+    // search starts from the top.
+    private int indexOf(int mark) {
+        for (int i = markCount - 1; i >= 0; i--) {
+            if (marks[i] == mark) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Buffers one more token; false at the end of input.
+    private boolean pull() {
+        Token token;
+        while (batch == null || batchIndex == batch.length) {
+            if (batches == null) {
+                return false;
+            }
+            batch = batches.get();
+            batchIndex = 0;
+            if (batch == null) {
+                batches = null;
+                if (last == null || !SyntaxAnalyzer.isEndOfInput(last)) {
+                    batch = new Token[] { new Token("EOF", "EOF", -1) };
+                }
+            }
+        }
+        token = batch[batchIndex++];
+        if (limit - base == ring.length) {
+            discard();
+            if (limit - base == ring.length) {
+                grow();
+            }
+        }
+        ring[limit & (ring.length - 1)] = token;
+        limit++;
+        last = token;
+        return true;
+    }
+
+    // Drops tokens before the current position and every open mark.
+    private void discard() {
+        int floor = position;
+        for (int i = 0; i < markCount; i++) {
+            floor = Math.min(floor, marks[i]);
+        }
+        for (; base < floor; base++) {
+            ring[base & (ring.length - 1)] = null;
+        }
+    }
+
+    private void grow() {
+        Token[] grown = new Token[ring.length * 2];
+        for (int i = base; i < limit; i++) {
+            grown[i & (grown.length - 1)] = ring[i & (ring.length - 1)];
+        }
+        ring = grown;
+    }
+}
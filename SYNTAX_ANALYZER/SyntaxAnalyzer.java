@@ -3,190 +3,649 @@ package SYNTAX_ANALYZER;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import LEXER.Lexer;
+import LEXER.TokenBuffer;
+import LEXER.TokenFile;
+import LEXER.TokenType;
+import LEXER.MetricsWriter;
+import SYNTAX_ANALYZER.ParseMetrics.Site;
+import SYNTAX_ANALYZER.ParseTrace.Event;
+import SYNTAX_ANALYZER.ParseTrace.Rule;
 
 public class SyntaxAnalyzer {
-    private static List<Token> tokens = new ArrayList<>();
-    private static int index = 0;
+    // Tokens converted per batch when reading from a lexer buffer or token file
+    private static final int BATCH = 256;
+    private final TokenSource source;
+    // Main class bodies of the whole input when it was available up front, else null
+    private final MainClassIndex mainClasses;
+    private final PrintStream out;
+    private final PrintStream err;
+    // Rule events kept for a failed parse; records nothing unless set
+    private ParseTrace trace = ParseTrace.disabled();
+    // Outcomes of rules retried after backtracking, or null to always re-parse
+    private MemoTable memo;
+    // Syntax tree built while parsing, or null to only check the input
+    private SyntaxTree tree;
+    // Counters each parse adds its tallies to, or null; the tallies are this parse's rule calls
+    // and, per backtracking site, moves back and tokens moved back over, all null without metrics
+    private ParseMetrics metrics;
+    private long[] ruleCalls;
+    private long[] backtracks;
+    private long[] rescanned;
+    // Times rule calls and charges backtracking to lines, or null
+    private ParseProfiler profiler;
+    // Statements and class members skipped after an error, how many may be before giving up,
+    // and whether the parse has given up
+    private int errorCount;
+    private int errorBudget = 1;
+    private boolean abandoned;
+    // Name from the most recent class header, for recognizing constructors and flight recorder events
+    private String currentClassName;
+    // Name of the input for flight recorder events, or null
+    private String sourceName;
 
-    // Token access methods
-    private static Token getNextToken() {
-        if (index < tokens.size()) {
-            return tokens.get(index++);
+    // Parse tokens from a source, reporting the result to System.out and errors to System.err
+    public SyntaxAnalyzer(TokenSource source) {
+        this(source, System.out, System.err);
+    }
+
+    // Parse tokens from a source with separate result and error streams, so that instances
+    // running side by side do not share output
+    public SyntaxAnalyzer(TokenSource source, PrintStream out, PrintStream err) {
+        this(source, null, out, err);
+    }
+
+    // Parse tokens from a source whose main class bodies were indexed beforehand, so the main
+    // class is recognized by lookup instead of by scanning ahead; mainClasses may be null
+    public SyntaxAnalyzer(TokenSource source, MainClassIndex mainClasses, PrintStream out, PrintStream err) {
+        this.source = source;
+        this.mainClasses = mainClasses;
+        this.out = out;
+        this.err = err;
+    }
+
+    // Rule ids in the memo table
+    private static final int MEMO_QUALIFIED_NAME = 0;
+    private static final int MEMO_EXPRESSION = 1;
+
+    // Turns packrat memoization of qualified_name and expression on, or off with null.
+    // A rule answered from the memo skips its trace output and error messages. The memo is
+    // not consulted while a syntax tree is built, since a replayed rule would build no nodes.
+    public void setMemoTable(MemoTable memo) {
+        this.memo = memo;
+    }
+
+    public MemoTable getMemoTable() {
+        return memo;
+    }
+
+    // Builds a syntax tree while parsing, cleared at the start of each PS(), or stops with null
+    public void setSyntaxTree(SyntaxTree tree) {
+        this.tree = tree;
+    }
+
+    public SyntaxTree getSyntaxTree() {
+        return tree;
+    }
+
+    // Syntax tree building; each helper does nothing when no tree is set
+
+    // Marks where a node starts: the current token position and the number of finished nodes
+    // waiting for a parent, so node() can adopt everything built after
+    private long begin() {
+        return tree == null ? 0 : (long) source.position() << 32 | tree.height();
+    }
+
+    // Number of nodes built since begin() that are still waiting for a parent
+    private int built(long start) {
+        return tree == null ? 0 : tree.height() - (int) start;
+    }
+
+    // Finishes a node begun at start whose first token is first
+    private void node(NodeKind kind, long start, Token first, String text) {
+        if (tree != null) {
+            tree.close(kind, (int) start, (int) (start >>> 32), first != null ? first.line : -1, text);
         }
-        return null;
     }
 
-    private static Token getCurrentToken() {
-        if (index < tokens.size()) {
-            return tokens.get(index);
+    // Adds a leaf for the token just consumed
+    private void leaf(NodeKind kind, Token tok) {
+        if (tree != null) {
+            tree.leaf(kind, source.position() - 1, tok.line, tok.value);
         }
-        return null;
     }
 
-    private static Token peekToken() {
-        return getCurrentToken();
+    // Adds an EMPTY leaf for a part left out, at the current token
+    private void empty() {
+        if (tree != null) {
+            Token tok = peekToken();
+            tree.leaf(NodeKind.EMPTY, source.position(), tok != null ? tok.line : -1, null);
+        }
+    }
+
+    // Combines the last two finished nodes with the operator at position at
+    private void binary(Token op, int at) {
+        if (tree != null) {
+            tree.close(NodeKind.BINARY, tree.height() - 2, at, op.line, op.value);
+        }
     }
 
-    private static boolean pushBack(int n) {
-        index = Math.max(0, index - n);
+    // Applies the operator at position at to the last finished node
+    private void unary(Token op, int at) {
+        if (tree != null) {
+            tree.close(NodeKind.UNARY, tree.height() - 1, at, op.line, op.value);
+        }
+    }
+
+    // Saves the tree with a token mark, to discard what a failed alternative built
+    private long treeMark() {
+        return tree == null ? 0 : tree.mark();
+    }
+
+    private void treeReset(long mark) {
+        if (tree != null) {
+            tree.reset(mark);
+        }
+    }
+
+    // Records rule events into a trace that is dumped to the error stream when a parse fails
+    public void setTrace(ParseTrace trace) {
+        this.trace = trace != null ? trace : ParseTrace.disabled();
+    }
+
+    public ParseTrace getTrace() {
+        return trace;
+    }
+
+    // Counts rule calls, backtracking and tokens read again into shared metrics at the end of
+    // each PS(), or stops with null
+    public void setMetrics(ParseMetrics metrics) {
+        this.metrics = metrics;
+        this.ruleCalls = metrics != null ? new long[Rule.values().length] : null;
+        this.backtracks = metrics != null ? new long[Site.values().length] : null;
+        this.rescanned = metrics != null ? new long[Site.values().length] : null;
+    }
+
+    public ParseMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Number of times the last parse moved back, or 0 without metrics
+    public long getBacktrackCount() {
+        return backtracks == null ? 0 : Arrays.stream(backtracks).sum();
+    }
+
+    // Number of tokens the last parse moved back over and read again, or 0 without metrics
+    public long getRescannedCount() {
+        return rescanned == null ? 0 : Arrays.stream(rescanned).sum();
+    }
+
+    // Times every rule call and charges backtracking to lines, adding to the profiler over
+    // parses, or stops with null
+    public void setProfiler(ParseProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public ParseProfiler getProfiler() {
+        return profiler;
+    }
+
+    // Names the input, usually by its file, in the flight recorder events of parses
+    public void setSourceName(String sourceName) {
+        this.sourceName = sourceName;
+    }
+
+    // Counts a rule call, records its entry in the trace and starts timing it. Every rule and
+    // lookahead calls this on entry and returns through exit(), so calls nest without adding
+    // stack frames.
+    private void enter(Rule rule) {
+        attempt(rule);
+        if (profiler != null) {
+            profiler.enter(rule);
+        }
+    }
+
+    // Stops timing the rule entered last and passes its result on
+    private boolean exit(boolean result) {
+        if (profiler != null) {
+            profiler.exit();
+        }
+        return result;
+    }
+
+    // Counts and traces an alternative tried within a rule, which has no exit of its own
+    private void attempt(Rule rule) {
+        if (ruleCalls != null) {
+            ruleCalls[rule.ordinal()]++;
+        }
+        trace(rule, Event.ENTER);
+    }
+
+    // Records a rule event at the current token, if the trace wants it
+    private void trace(Rule rule, Event event) {
+        if (trace.isEnabled(rule, event)) {
+            Token tok = peekToken();
+            trace.record(rule, event, source.position(), tok != null ? tok.line : -1);
+        }
+    }
+
+    // Sets how many syntax errors one parse reports. After each of the first budget - 1 errors the
+    // parser skips the broken statement or class member and goes on; 1, the default, stops at the
+    // first error.
+    public void setErrorBudget(int budget) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("Error budget must be positive: " + budget);
+        }
+        this.errorBudget = budget;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    // Panic-mode recovery after a statement or class member that began at start failed: skips to
+    // its end, which is a ';' or the '}' of a block opened within it (both consumed), or the '}'
+    // closing the enclosing block (left for its owner). It also stops before anything that can
+    // only begin a class member, which a statement never holds, and before a '}' followed by one,
+    // which closes the method rather than a block the broken statement opened. After a member it
+    // stops before the start of the next member outside brackets: a modifier, a data type, void,
+    // or the class name and '('. It always moves past start. False if the parse should give up
+    // instead. What the failed part built, everything since the tree mark built, becomes one
+    // ERROR leaf.
+    private boolean recover(long built, int start, boolean member) {
+        if (!tolerate(built)) {
+            return false;
+        }
+        int depth = 0;
+        int parens = 0;
+        Token tok;
+        while ((tok = peekToken()) != null && !isEndOfInput(tok)) {
+            if (tok.kind == TokenKind.RBRACE && depth == 0) {
+                return true;
+            }
+            if (source.position() > start) {
+                if (member ? depth == 0 && parens == 0 && startsMember(tok, source.peek(1))
+                        : startsOnlyMember(tok) || tok.kind == TokenKind.RBRACE && startsOnlyMember(source.peek(1))) {
+                    return true;
+                }
+            }
+            getNextToken();
+            if (tok.kind == TokenKind.LPAREN) {
+                parens++;
+            } else if (tok.kind == TokenKind.RPAREN && parens > 0) {
+                parens--;
+            }
+            if (tok.kind == TokenKind.LBRACE) {
+                depth++;
+            } else if (tok.kind == TokenKind.RBRACE && --depth == 0) {
+                return true;
+            } else if (tok.kind == TokenKind.SEMICOLON && depth == 0) {
+                return true;
+            }
+        }
+        return false; // Nothing left to resume at
+    }
+
+    // Counts an error the parser is about to skip past, and makes what the failed part built,
+    // everything since the tree mark built, one ERROR leaf. False if the error budget is spent and
+    // the parse should give up instead.
+    private boolean tolerate(long built) {
+        if (abandoned) {
+            return false;
+        }
+        errorCount++;
+        if (errorCount >= errorBudget) {
+            if (errorBudget > 1) {
+                err.println("Too many syntax errors, stopping after " + errorCount);
+            }
+            abandoned = true;
+            return false;
+        }
+        if (tree != null) {
+            treeReset(built);
+            Token at = peekToken();
+            tree.leaf(NodeKind.ERROR, source.position(), at != null ? at.line : -1, null);
+        }
         return true;
     }
 
-    private static void reset() {
-        index = 0;
+    // Whether a token, followed by next, can begin a class member
+    private boolean startsMember(Token tok, Token next) {
+        return isModifier(tok) || isDataType(tok) || tok.kind == TokenKind.VOID
+            || Identifier(tok) && tok.value.equals(getCurrentClassName()) && next != null && next.kind == TokenKind.LPAREN;
+    }
+
+    // Whether a token can begin a class member or class but no statement; the end of input counts
+    private static boolean startsOnlyMember(Token tok) {
+        return tok == null || isEndOfInput(tok) || isModifier(tok) || tok.kind == TokenKind.VOID || tok.kind == TokenKind.CLASS;
+    }
+
+    // Runs a rule, or replays its outcome if it already ran at this position
+    private boolean memoized(int rule, BooleanSupplier body) {
+        if (memo == null || tree != null) {
+            return body.getAsBoolean();
+        }
+        int start = source.position();
+        int entry = memo.lookup(rule, start);
+        if (entry >= 0) {
+            source.skipTo(MemoTable.end(entry));
+            return MemoTable.succeeded(entry);
+        }
+        boolean success = body.getAsBoolean();
+        memo.store(rule, start, source.position(), success);
+        return success;
+    }
+
+    // Token access methods
+    private Token getNextToken() {
+        return source.next();
+    }
+
+    private Token getCurrentToken() {
+        return source.peek(0);
+    }
+
+    private Token peekToken() {
+        return getCurrentToken();
+    }
+
+    // Backtrack to a mark that is no longer needed afterwards
+    private void rewind(int mark, Site site) {
+        backtrack(mark, site);
+        source.release(mark);
+    }
+
+    // Backtrack to a mark, counting the move and the tokens that will be read again
+    private void backtrack(int mark, Site site) {
+        int tokens = source.position() - mark;
+        if (backtracks != null) {
+            backtracks[site.ordinal()]++;
+            rescanned[site.ordinal()] += tokens;
+        }
+        source.reset(mark);
+        if (profiler != null) {
+            Token tok = peekToken();
+            profiler.backtrack(tok != null ? tok.line : -1, tokens);
+        }
     }
 
     // Enhanced error reporting
-    private static void reportError(String expected, Token found) {
-        System.err.println("SYNTAX ERROR at line " + 
+    private void reportError(String expected, Token found) {
+        err.println("SYNTAX ERROR at line " + 
             (found != null ? found.line : "EOF") + 
             ": Expected '" + expected + "' but found '" + 
             (found != null ? found.value : "EOF") + "'");
     }
 
-    private static void reportError(String message) {
+    private void reportError(String message) {
         Token current = peekToken();
-        System.err.println("SYNTAX ERROR at line " + 
+        err.println("SYNTAX ERROR at line " + 
             (current != null ? current.line : "EOF") + ": " + message);
     }
 
     // <PS> → <import_statements> <classes> <main_class>
-    public static boolean PS() {
-        System.out.println("Entering <PS> section");
+    public boolean PS() {
+        if (memo != null) {
+            memo.clear();
+        }
+        trace.clear();
+        if (tree != null) {
+            tree.clear();
+        }
+        errorCount = 0;
+        abandoned = false;
+        if (profiler != null) {
+            profiler.begin(sourceName);
+        }
+        ParserEvents.Parse event = new ParserEvents.Parse();
+        event.begin();
+        long started = 0;
+        if (metrics != null) {
+            Arrays.fill(ruleCalls, 0);
+            Arrays.fill(backtracks, 0);
+            Arrays.fill(rescanned, 0);
+            started = System.nanoTime();
+        }
+        int first = source.position();
+        boolean result = false;
+        String outcome = null;
+        try {
+            result = run();
+            outcome = result ? "success" : "failure";
+        } catch (RuntimeException | Error e) {
+            outcome = e.toString();
+            throw e;
+        } finally {
+            if (metrics != null) {
+                metrics.add(result, source.position() - first, System.nanoTime() - started, ruleCalls, backtracks, rescanned);
+            }
+            if (event.shouldCommit()) {
+                event.file = sourceName;
+                event.tokens = source.position() - first;
+                event.errors = errorCount;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+        return result;
+    }
+
+    // Parses one top-level class, the main class if main is set, recording it as a ClassParse
+    // event when those are enabled
+    private boolean topLevelClass(boolean main) {
+        ParserEvents.ClassParse event = new ParserEvents.ClassParse();
+        event.begin();
+        Token first = peekToken();
+        int position = source.position();
+        int errors = errorCount;
+        currentClassName = null;
+        boolean result = false;
+        String outcome = null;
+        try {
+            result = main ? main_class() : classDecl();
+            outcome = !result ? "failure" : errorCount > errors ? "recovered" : "success";
+        } catch (RuntimeException | Error e) {
+            outcome = e.toString();
+            throw e;
+        } finally {
+            if (event.shouldCommit()) {
+                event.file = sourceName;
+                event.className = currentClassName;
+                event.line = first != null ? first.line : -1;
+                event.tokens = source.position() - position;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+        return result;
+    }
+
+    private boolean run() {
+        boolean result = program();
+        if (!result) {
+            trace.dump(err);
+        }
+        return result;
+    }
+
+    private boolean program() {
+        enter(Rule.PS);
+        long start = begin();
+        Token first = peekToken();
         
         // Parse optional import statements
         if (!import_statements()) {
-            return false;
+            return exit(false);
         }
         
         // Parse classes (can be empty)
         if (!classes()) {
-            return false;
+            return exit(false);
         }
         
         // Parse main class (required)
-        if (!main_class()) {
-            return false;
+        if (!topLevelClass(true)) {
+            return exit(false);
         }
         
         // Check for end of input
         Token tok = getCurrentToken();
         if (tok != null && !isEndOfInput(tok)) {
             reportError("End of file", tok);
-            return false;
+            return exit(false);
         }
         
-        System.out.println("Parsing Successful !!!");
-        return true;
+        // Kept when errors were recovered from, with ERROR leaves for the parts skipped
+        node(NodeKind.PROGRAM, start, first, null);
+        if (tree != null) {
+            tree.finish();
+        }
+        
+        if (errorCount > 0) {
+            err.println(errorCount + (errorCount == 1 ? " syntax error" : " syntax errors"));
+            return exit(false);
+        }
+        out.println("Parsing Successful !!!");
+        return exit(true);
     }
 
     // <import_statements> → <import_st> <import_statements> | ε
-    public static boolean import_statements() {
-        System.out.println("Entering <import_statements> section");
+    public boolean import_statements() {
+        enter(Rule.IMPORT_STATEMENTS);
         
-        while (peekToken() != null && peekToken().value.equals("import")) {
+        while (peekToken() != null && peekToken().kind == TokenKind.IMPORT) {
             if (!import_st()) {
-                return false;
+                return exit(false);
             }
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // <import_st> → import <qualified_name> <import_tail>
-    public static boolean import_st() {
-        System.out.println("Entering <import_st> section");
+    public boolean import_st() {
+        enter(Rule.IMPORT_ST);
+        long start = begin();
         
         Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("import")) {
+        if (tok == null || tok.kind != TokenKind.IMPORT) {
             reportError("import", tok);
-            return false;
+            return exit(false);
         }
         
         if (!qualified_name()) {
             reportError("qualified name after import");
-            return false;
+            return exit(false);
         }
         
+        boolean onDemand = peekToken() != null && peekToken().kind == TokenKind.DOT;
         if (!import_tail()) {
             reportError("';' or '.*'");
-            return false;
+            return exit(false);
         }
         
-        return true;
+        node(NodeKind.IMPORT, start, tok, onDemand ? "*" : null);
+        return exit(true);
     }
 
     // <import_tail> → ; | . * ;
-    public static boolean import_tail() {
+    public boolean import_tail() {
+        enter(Rule.IMPORT_TAIL);
         Token tok = getNextToken();
         if (tok != null) {
-            if (tok.value.equals(";")) {
-                return true;
-            } else if (tok.value.equals(".")) {
+            if (tok.kind == TokenKind.SEMICOLON) {
+                return exit(true);
+            } else if (tok.kind == TokenKind.DOT) {
                 tok = getNextToken();
-                if (tok != null && tok.value.equals("*")) {
+                if (tok != null && tok.kind == TokenKind.STAR) {
                     tok = getNextToken();
-                    if (tok != null && tok.value.equals(";")) {
-                        return true;
+                    if (tok != null && tok.kind == TokenKind.SEMICOLON) {
+                        return exit(true);
                     } else {
                         reportError(";", tok);
-                        return false;
+                        return exit(false);
                     }
                 } else {
                     reportError("*", tok);
-                    return false;
+                    return exit(false);
                 }
             } else {
                 reportError("';' or '.'", tok);
-                return false;
+                return exit(false);
             }
         }
         reportError("';' or '.'", null);
-        return false;
+        return exit(false);
     }
 
     // <qualified_name> → ID <qualified_name_tail>
-    public static boolean qualified_name() {
-        System.out.println("Entering <qualified_name> section");
+    public boolean qualified_name() {
+        return memoized(MEMO_QUALIFIED_NAME, this::parse_qualified_name);
+    }
+
+    private boolean parse_qualified_name() {
+        enter(Rule.QUALIFIED_NAME);
+        long start = begin();
         
-        if (!Identifier(peekToken())) {
-            reportError("identifier", peekToken());
-            return false;
+        Token first = peekToken();
+        if (!Identifier(first)) {
+            reportError("identifier", first);
+            return exit(false);
+        }
+        leaf(NodeKind.NAME, getNextToken());
+        if (!qualified_name_tail()) {
+            return exit(false);
         }
-        getNextToken(); // consume the identifier
-        return qualified_name_tail();
+        if (built(start) > 1) {
+            node(NodeKind.QUALIFIED_NAME, start, first, null);
+        }
+        return exit(true);
     }
 
     // <qualified_name_tail> → ε | . ID <qualified_name_tail>
-    public static boolean qualified_name_tail() {
-        if (peekToken() != null && peekToken().value.equals(".")) {
+    public boolean qualified_name_tail() {
+        enter(Rule.QUALIFIED_NAME_TAIL);
+        if (peekToken() != null && peekToken().kind == TokenKind.DOT) {
             getNextToken(); // consume '.'
             if (!Identifier(peekToken())) {
                 reportError("identifier after '.'", peekToken());
-                return false;
+                return exit(false);
             }
-            getNextToken(); // consume identifier
-            return qualified_name_tail();
+            leaf(NodeKind.NAME, getNextToken());
+            return exit(qualified_name_tail());
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // <classes> → <class> <classes> | ε
-    public static boolean classes() {
-        System.out.println("Entering <classes> section");
+    public boolean classes() {
+        enter(Rule.CLASSES);
         
         while (peekToken() != null && First_class(peekToken()) && !isMainClass()) {
-            if (!classDecl()) {
-                return false;
+            if (!topLevelClass(false)) {
+                return exit(false);
             }
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // Check if current position is start of main class
-    private static boolean isMainClass() {
-        int savedIndex = index;
+    private boolean isMainClass() {
+        enter(Rule.IS_MAIN_CLASS);
+        int mark = source.mark();
         boolean hasMain = false;
         
         // Skip modifiers
@@ -195,38 +654,39 @@ public class SyntaxAnalyzer {
         }
         
         // Check for class keyword
-        if (peekToken() != null && peekToken().value.equals("class")) {
+        if (peekToken() != null && peekToken().kind == TokenKind.CLASS) {
             getNextToken();
             if (Identifier(peekToken())) {
                 getNextToken();
                 // Skip inheritance
-                if (peekToken() != null && peekToken().value.equals("extends")) {
+                if (peekToken() != null && peekToken().kind == TokenKind.EXTENDS) {
                     getNextToken();
                     if (Identifier(peekToken())) {
                         getNextToken();
                     }
                 }
                 // Check if class body contains main method
-                if (peekToken() != null && peekToken().value.equals("{")) {
-                    hasMain = containsMainMethod();
+                if (peekToken() != null && peekToken().kind == TokenKind.LBRACE) {
+                    hasMain = mainClasses != null ? mainClasses.hasMain(source.position()) : containsMainMethod();
                 }
             }
         }
         
-        index = savedIndex;
-        return hasMain;
+        rewind(mark, Site.IS_MAIN_CLASS);
+        return exit(hasMain);
     }
 
-    // Check if current class contains main method
-    private static boolean containsMainMethod() {
-        int savedIndex = index;
+    // Check if current class contains main method, scanning ahead when there is no main class index
+    private boolean containsMainMethod() {
+        enter(Rule.CONTAINS_MAIN_METHOD);
+        int mark = source.mark();
         boolean hasMain = false;
         
-        if (peekToken() != null && peekToken().value.equals("{")) {
+        if (peekToken() != null && peekToken().kind == TokenKind.LBRACE) {
             getNextToken(); // consume '{'
             
             // Look for main method pattern
-            while (peekToken() != null && !peekToken().value.equals("}")) {
+            while (peekToken() != null && peekToken().kind != TokenKind.RBRACE) {
                 if (isMainMethodStart()) {
                     hasMain = true;
                     break;
@@ -235,170 +695,195 @@ public class SyntaxAnalyzer {
             }
         }
         
-        index = savedIndex;
-        return hasMain;
+        rewind(mark, Site.CONTAINS_MAIN_METHOD);
+        return exit(hasMain);
     }
 
     // <main_class> → <main_method>
-    public static boolean main_class() {
-        System.out.println("Entering <main_class> section");
+    public boolean main_class() {
+        enter(Rule.MAIN_CLASS);
+        long start = begin();
+        Token first = peekToken();
         
         // Parse class structure containing main method
         if (!modifiers()) {
-            return false;
+            return exit(false);
         }
         
         Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("class")) {
+        if (tok == null || tok.kind != TokenKind.CLASS) {
             reportError("class", tok);
-            return false;
+            return exit(false);
         }
         
         if (!Identifier(peekToken())) {
             reportError("class name", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken(); // consume class name
+        Token name = getNextToken();
+        currentClassName = name.value;
+        leaf(NodeKind.NAME, name);
         
         // Optional inheritance
         if (!inheritance()) {
-            return false;
+            return exit(false);
         }
         
         // Class body with main method
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("{")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.LBRACE) {
             reportError("{", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
         if (!main_method()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("}")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RBRACE) {
             reportError("}", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        node(NodeKind.CLASS, start, first, null);
+        return exit(true);
     }
 
     // <class> → <class_header> <inheritance> <class_body>
-    public static boolean classDecl() {
-        System.out.println("Entering <class> section");
+    public boolean classDecl() {
+        enter(Rule.CLASS);
+        long start = begin();
+        Token first = peekToken();
         
         if (!class_header()) {
-            return false;
+            return exit(false);
         }
         
         if (!inheritance()) {
-            return false;
+            return exit(false);
+        }
+        
+        if (!class_body()) {
+            return exit(false);
         }
         
-        return class_body();
+        node(NodeKind.CLASS, start, first, null);
+        return exit(true);
     }
 
     // <class_header> → <modifiers> class ID
-    public static boolean class_header() {
-        System.out.println("Entering <class_header> section");
+    public boolean class_header() {
+        enter(Rule.CLASS_HEADER);
         
         if (!modifiers()) {
-            return false;
+            return exit(false);
         }
         
         Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("class")) {
+        if (tok == null || tok.kind != TokenKind.CLASS) {
             reportError("class", tok);
-            return false;
+            return exit(false);
         }
         
         if (!Identifier(peekToken())) {
             reportError("class name (identifier)", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken(); // consume class name
+        Token name = getNextToken();
+        currentClassName = name.value;
+        leaf(NodeKind.NAME, name);
         
-        return true;
+        return exit(true);
     }
 
     // <modifiers> → <modifier> <modifiers> | ε
-    public static boolean modifiers() {
+    public boolean modifiers() {
+        enter(Rule.MODIFIERS);
         while (peekToken() != null && isModifier(peekToken())) {
             Token modifier = getNextToken();
             // Validate modifier combinations if needed
             if (!isValidModifier(modifier)) {
                 reportError("Invalid modifier: " + modifier.value);
-                return false;
+                return exit(false);
             }
+            leaf(NodeKind.MODIFIER, modifier);
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // <inheritance> → extends ID | ε
-    public static boolean inheritance() {
-        if (peekToken() != null && peekToken().value.equals("extends")) {
+    public boolean inheritance() {
+        enter(Rule.INHERITANCE);
+        if (peekToken() != null && peekToken().kind == TokenKind.EXTENDS) {
             getNextToken(); // consume 'extends'
             if (!Identifier(peekToken())) {
                 reportError("class name after extends", peekToken());
-                return false;
+                return exit(false);
             }
-            getNextToken(); // consume class name
+            leaf(NodeKind.EXTENDS, getNextToken());
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // <class_body> → { <attributes> <class_body> | <constructors> <class_body> | <methods> <class_body> | ε }
-    public static boolean class_body() {
-        System.out.println("Entering <class_body> section");
+    public boolean class_body() {
+        enter(Rule.CLASS_BODY);
         
-        Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("{")) {
+        Token tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.LBRACE) {
             reportError("{", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
         // Parse class members
-        while (peekToken() != null && !peekToken().value.equals("}")) {
-            if (!class_member()) {
-                return false;
+        while (peekToken() != null && peekToken().kind != TokenKind.RBRACE) {
+            long built = treeMark();
+            int start = source.position();
+            if (!class_member() && !recover(built, start, true)) {
+                return exit(false);
             }
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("}")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RBRACE) {
             reportError("}", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        return exit(true);
     }
 
     // Parse class members (attributes, constructors, methods)
-    public static boolean class_member() {
+    public boolean class_member() {
+        enter(Rule.CLASS_MEMBER);
         Token current = peekToken();
         if (current == null) {
             reportError("class member expected");
-            return false;
+            return exit(false);
         }
 
         // Try to parse different types of class members
         if (isAttribute()) {
-            return attribute();
+            return exit(attribute());
         } else if (isConstructor()) {
-            return constructor();
+            return exit(constructor());
         } else if (isMethod()) {
-            return method();
+            return exit(method());
         } else {
             reportError("Invalid class member", current);
-            return false;
+            return exit(false);
         }
     }
 
     // Check if current position is an attribute
-    private static boolean isAttribute() {
-        int savedIndex = index;
+    private boolean isAttribute() {
+        enter(Rule.IS_ATTRIBUTE);
+        int mark = source.mark();
         boolean isAttr = false;
         
         // Skip modifiers
@@ -413,21 +898,22 @@ public class SyntaxAnalyzer {
                 getNextToken();
                 // Check for assignment or semicolon
                 if (peekToken() != null && 
-                    (peekToken().value.equals("=") || peekToken().value.equals(";"))) {
+                    (peekToken().kind == TokenKind.ASSIGN || peekToken().kind == TokenKind.SEMICOLON)) {
                     isAttr = true;
                 }
             }
         }
         
-        index = savedIndex;
-        return isAttr;
+        rewind(mark, Site.IS_ATTRIBUTE);
+        return exit(isAttr);
     }
 
     // Check if current position is a constructor
-    private static boolean isConstructor() {
-        int savedIndex = index;
+    private boolean isConstructor() {
+        enter(Rule.IS_CONSTRUCTOR);
+        int mark = source.mark();
         boolean isCtor = false;
-        String className = getCurrentClassName(); // This would need to be tracked
+        String className = getCurrentClassName();
         
         // Skip modifiers
         while (peekToken() != null && isModifier(peekToken())) {
@@ -438,18 +924,19 @@ public class SyntaxAnalyzer {
         if (peekToken() != null && Identifier(peekToken()) && 
             peekToken().value.equals(className)) {
             getNextToken();
-            if (peekToken() != null && peekToken().value.equals("(")) {
+            if (peekToken() != null && peekToken().kind == TokenKind.LPAREN) {
                 isCtor = true;
             }
         }
         
-        index = savedIndex;
-        return isCtor;
+        rewind(mark, Site.IS_CONSTRUCTOR);
+        return exit(isCtor);
     }
 
     // Check if current position is a method
-    private static boolean isMethod() {
-        int savedIndex = index;
+    private boolean isMethod() {
+        enter(Rule.IS_METHOD);
+        int mark = source.mark();
         boolean isMethod = false;
         
         // Skip modifiers
@@ -458,775 +945,834 @@ public class SyntaxAnalyzer {
         }
         
         // Check for return type
-        if (peekToken() != null && (isDataType(peekToken()) || peekToken().value.equals("void"))) {
+        if (peekToken() != null && (isDataType(peekToken()) || peekToken().kind == TokenKind.VOID)) {
             getNextToken();
             if (Identifier(peekToken())) {
                 getNextToken();
-                if (peekToken() != null && peekToken().value.equals("(")) {
+                if (peekToken() != null && peekToken().kind == TokenKind.LPAREN) {
                     isMethod = true;
                 }
             }
         }
         
-        index = savedIndex;
-        return isMethod;
+        rewind(mark, Site.IS_METHOD);
+        return exit(isMethod);
     }
 
     // <attributes> → <modifiers> DT ID <exp>
-    public static boolean attribute() {
-        System.out.println("Entering <attribute> section");
+    public boolean attribute() {
+        enter(Rule.ATTRIBUTE);
+        long start = begin();
+        Token first = peekToken();
         
         if (!modifiers()) {
-            return false;
+            return exit(false);
         }
         
         if (!dataType()) {
             reportError("data type expected");
-            return false;
+            return exit(false);
         }
         
         if (!Identifier(peekToken())) {
             reportError("attribute name expected", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken();
+        leaf(NodeKind.NAME, getNextToken());
         
         // Optional initialization
-        if (peekToken() != null && peekToken().value.equals("=")) {
+        if (peekToken() != null && peekToken().kind == TokenKind.ASSIGN) {
             getNextToken();
             if (!expression()) {
                 reportError("expression expected after '='");
-                return false;
+                return exit(false);
             }
         }
         
-        Token tok = getNextToken();
-        if (tok == null || !tok.value.equals(";")) {
+        Token tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.SEMICOLON) {
             reportError(";", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        node(NodeKind.ATTRIBUTE, start, first, null);
+        return exit(true);
     }
 
     // <constructor> → <constructor_header> <method_body>
-    public static boolean constructor() {
-        System.out.println("Entering <constructor> section");
+    public boolean constructor() {
+        enter(Rule.CONSTRUCTOR);
+        long start = begin();
+        Token first = peekToken();
         
         if (!constructor_header()) {
-            return false;
+            return exit(false);
         }
         
-        return method_body();
+        if (!method_body()) {
+            return exit(false);
+        }
+        
+        node(NodeKind.CONSTRUCTOR, start, first, null);
+        return exit(true);
     }
 
     // <constructor_header> → <modifiers> ID(<parameters>)
-    public static boolean constructor_header() {
+    public boolean constructor_header() {
+        enter(Rule.CONSTRUCTOR_HEADER);
         if (!modifiers()) {
-            return false;
+            return exit(false);
         }
         
         if (!Identifier(peekToken())) {
             reportError("constructor name expected", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken();
+        leaf(NodeKind.NAME, getNextToken());
         
         Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("(")) {
+        if (tok == null || tok.kind != TokenKind.LPAREN) {
             reportError("(", tok);
-            return false;
+            return exit(false);
         }
         
         if (!parameters()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(")")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RPAREN) {
             reportError(")", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        return exit(true);
     }
 
     // <method> → <method_header> <method_body>
-    public static boolean method() {
-        System.out.println("Entering <method> section");
+    public boolean method() {
+        enter(Rule.METHOD);
+        long start = begin();
+        Token first = peekToken();
         
         if (!method_header()) {
-            return false;
+            return exit(false);
+        }
+        
+        if (!method_body()) {
+            return exit(false);
         }
         
-        return method_body();
+        node(NodeKind.METHOD, start, first, null);
+        return exit(true);
     }
 
     // <method_header> → <modifiers> DT ID(<parameters>)
-    public static boolean method_header() {
+    public boolean method_header() {
+        enter(Rule.METHOD_HEADER);
         if (!modifiers()) {
-            return false;
+            return exit(false);
         }
         
         // Return type (DT or void)
-        if (peekToken() != null && peekToken().value.equals("void")) {
-            getNextToken();
+        if (peekToken() != null && peekToken().kind == TokenKind.VOID) {
+            leaf(NodeKind.TYPE, getNextToken());
         } else if (!dataType()) {
             reportError("return type expected");
-            return false;
+            return exit(false);
         }
         
         if (!Identifier(peekToken())) {
             reportError("method name expected", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken();
+        leaf(NodeKind.NAME, getNextToken());
         
         Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("(")) {
+        if (tok == null || tok.kind != TokenKind.LPAREN) {
             reportError("(", tok);
-            return false;
+            return exit(false);
         }
         
         if (!parameters()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(")")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RPAREN) {
             reportError(")", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        return exit(true);
     }
 
     // <method_body> → { <MST> }
-    public static boolean method_body() {
-        System.out.println("Entering <method_body> section");
+    public boolean method_body() {
+        enter(Rule.METHOD_BODY);
+        long start = begin();
         
-        Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("{")) {
-            reportError("{", tok);
-            return false;
+        Token first = getNextToken();
+        if (first == null || first.kind != TokenKind.LBRACE) {
+            reportError("{", first);
+            return exit(false);
         }
         
         if (!MST()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("}")) {
+        Token tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RBRACE) {
             reportError("}", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        node(NodeKind.BLOCK, start, first, null);
+        return exit(true);
     }
 
     // <parameters> → <parameter> <parameter'> | ε
-    public static boolean parameters() {
-        if (peekToken() != null && !peekToken().value.equals(")")) {
+    public boolean parameters() {
+        enter(Rule.PARAMETERS);
+        if (peekToken() != null && peekToken().kind != TokenKind.RPAREN) {
             if (!parameter()) {
-                return false;
+                return exit(false);
             }
-            return parameter_prime();
+            return exit(parameter_prime());
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // <parameter'> → ε | , <parameters>
-    public static boolean parameter_prime() {
-        if (peekToken() != null && peekToken().value.equals(",")) {
+    public boolean parameter_prime() {
+        enter(Rule.PARAMETER_PRIME);
+        if (peekToken() != null && peekToken().kind == TokenKind.COMMA) {
             getNextToken();
-            return parameters();
+            return exit(parameters());
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // <parameter> → DT ID
-    public static boolean parameter() {
+    public boolean parameter() {
+        enter(Rule.PARAMETER);
+        long start = begin();
+        Token first = peekToken();
         if (!dataType()) {
             reportError("parameter type expected");
-            return false;
+            return exit(false);
         }
         
         if (!Identifier(peekToken())) {
             reportError("parameter name expected", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken();
+        leaf(NodeKind.NAME, getNextToken());
         
-        return true;
+        node(NodeKind.PARAMETER, start, first, null);
+        return exit(true);
     }
 
     // <MST> → <SST> <MST> | ε
-    public static boolean MST() {
-        while (peekToken() != null && !peekToken().value.equals("}") && First_SST(peekToken())) {
-            if (!SST()) {
-                return false;
+    public boolean MST() {
+        enter(Rule.MST);
+        while (peekToken() != null && peekToken().kind != TokenKind.RBRACE && First_SST(peekToken())) {
+            long built = treeMark();
+            int start = source.position();
+            if (!SST() && !recover(built, start, false)) {
+                return exit(false);
             }
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
     // <SST> → <exp>; | <TS>; | <return_st>; | <assign_st>; | <dec>; | <if_st> | <while_st> | <for_st>; | ObjCall
-    public static boolean SST() {
+    public boolean SST() {
     Token current = peekToken();
-    System.out.println("Entering SST, current token: " + (current != null ? current : "null"));
+    enter(Rule.SST);
     if (current == null) {
         reportError("statement expected");
-        return false;
-    }
-
-    if (current.value.equals("if")) {
-        return if_statement();
-    } else if (current.value.equals("while")) {
-        return while_statement();
-    } else if (current.value.equals("for")) {
-        return for_statement();
-    } else if (current.value.equals("return")) {
-        return return_statement();
-    } else if (isDataType(current)) {
-        System.out.println("Trying declaration for token: " + current);
-        return declaration();
-    } else if (Identifier(current)) {
-        int savedIndex = index; // Save index for backtracking
-        System.out.println("Trying assignment_or_call for token: " + current);
-        if (assignment_or_call()) {
-            return true;
+        return exit(false);
+    }
+
+    switch (current.kind) {
+    case IF:
+        return exit(if_statement());
+    case WHILE:
+        return exit(while_statement());
+    case FOR:
+        return exit(for_statement());
+    case RETURN:
+        return exit(return_statement());
+    default:
+        if (isDataType(current)) {
+            return exit(declaration());
+        } else if (Identifier(current)) {
+            int mark = source.mark(); // Save position for backtracking
+            if (assignment_or_call()) {
+                source.release(mark);
+                return exit(true);
+            }
+            rewind(mark, Site.SST); // Backtrack to try expression
+            trace(Rule.SST, Event.BACKTRACK);
         }
-        index = savedIndex; // Backtrack to try expression
-        System.out.println("Backtracked to index " + index + ", retrying expression");
     }
 
     // Try expression statement
-    int savedIndex = index;
-    System.out.println("Trying expression statement for token: " + current);
+    int mark = source.mark();
+    long built = treeMark();
+    long start = begin();
+    attempt(Rule.EXPRESSION_STATEMENT);
     if (expression()) {
         Token tok = getNextToken();
-        if (tok == null || !tok.value.equals(";")) {
+        if (tok == null || tok.kind != TokenKind.SEMICOLON) {
             reportError(";", tok);
-            index = savedIndex;
-            return false;
+            rewind(mark, Site.SST);
+            treeReset(built);
+            return exit(false);
         }
-        System.out.println("Successfully parsed expression statement");
-        return true;
+        node(NodeKind.EXPRESSION_STATEMENT, start, current, null);
+        trace(Rule.EXPRESSION_STATEMENT, Event.SUCCESS);
+        source.release(mark);
+        return exit(true);
     }
-    index = savedIndex;
+    rewind(mark, Site.SST);
+    treeReset(built);
 
     reportError("invalid statement", current);
-    return false;
+    return exit(false);
 }    // Simple implementations for statement types
-    public static boolean if_statement() {
-        Token tok = getNextToken(); // consume 'if'
+    public boolean if_statement() {
+        enter(Rule.IF_STATEMENT);
+        long start = begin();
+        Token first = getNextToken(); // consume 'if'
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("(")) {
+        Token tok = getNextToken();
+        if (tok == null || tok.kind != TokenKind.LPAREN) {
             reportError("(", tok);
-            return false;
+            return exit(false);
         }
         
         if (!condition()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(")")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RPAREN) {
             reportError(")", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
         if (!loop_body()) {
-            return false;
+            return exit(false);
         }
         
         // Optional else
-        if (peekToken() != null && peekToken().value.equals("else")) {
+        if (peekToken() != null && peekToken().kind == TokenKind.ELSE) {
             getNextToken();
             if (!loop_body()) {
-                return false;
+                return exit(false);
             }
         }
         
-        return true;
+        node(NodeKind.IF, start, first, null);
+        return exit(true);
     }
 
-    public static boolean while_statement() {
-        Token tok = getNextToken(); // consume 'while'
+    public boolean while_statement() {
+        enter(Rule.WHILE_STATEMENT);
+        long start = begin();
+        Token first = getNextToken(); // consume 'while'
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("(")) {
+        Token tok = getNextToken();
+        if (tok == null || tok.kind != TokenKind.LPAREN) {
             reportError("(", tok);
-            return false;
+            return exit(false);
         }
         
         if (!condition()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(")")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RPAREN) {
             reportError(")", tok);
-            return false;
+            return exit(false);
+        }
+        getNextToken();
+        
+        if (!loop_body()) {
+            return exit(false);
         }
         
-        return loop_body();
+        node(NodeKind.WHILE, start, first, null);
+        return exit(true);
     }
 
-    public static boolean for_statement() {
-        Token tok = getNextToken(); // consume 'for'
+    public boolean for_statement() {
+        enter(Rule.FOR_STATEMENT);
+        long start = begin();
+        Token first = getNextToken(); // consume 'for'
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("(")) {
+        Token tok = getNextToken();
+        if (tok == null || tok.kind != TokenKind.LPAREN) {
             reportError("(", tok);
-            return false;
+            return exit(false);
         }
         
         // F1 - initialization
         if (!F1()) {
-            return false;
+            return exit(false);
         }
         
         // F2 - condition
         if (!F2()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(";")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.SEMICOLON) {
             reportError(";", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
         // F3 - increment
         if (!F3()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(")")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RPAREN) {
             reportError(")", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return loop_body();
+        if (!loop_body()) {
+            return exit(false);
+        }
+        
+        node(NodeKind.FOR, start, first, null);
+        return exit(true);
     }
 
-    public static boolean return_statement() {
-        getNextToken(); // consume 'return'
+    public boolean return_statement() {
+        enter(Rule.RETURN_STATEMENT);
+        long start = begin();
+        Token first = getNextToken(); // consume 'return'
         
         // Optional expression
-        if (peekToken() != null && !peekToken().value.equals(";")) {
+        if (peekToken() != null && peekToken().kind != TokenKind.SEMICOLON) {
             if (!expression()) {
-                return false;
+                return exit(false);
             }
         }
         
-        Token tok = getNextToken();
-        if (tok == null || !tok.value.equals(";")) {
+        Token tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.SEMICOLON) {
             reportError(";", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        node(NodeKind.RETURN, start, first, null);
+        return exit(true);
     }
 
-    public static boolean declaration() {
+    public boolean declaration() {
+        enter(Rule.DECLARATION);
+        long start = begin();
+        Token first = peekToken();
         if (!dataType()) {
-            return false;
+            return exit(false);
         }
         
         if (!Identifier(peekToken())) {
             reportError("variable name expected", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken();
+        leaf(NodeKind.NAME, getNextToken());
         
         // Optional initialization
-        if (peekToken() != null && peekToken().value.equals("=")) {
+        if (peekToken() != null && peekToken().kind == TokenKind.ASSIGN) {
             getNextToken();
             if (!expression()) {
                 reportError("expression expected after '='");
-                return false;
+                return exit(false);
             }
         }
         
-        Token tok = getNextToken();
-        if (tok == null || !tok.value.equals(";")) {
+        Token tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.SEMICOLON) {
             reportError(";", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        node(NodeKind.DECLARATION, start, first, null);
+        return exit(true);
     }
 
- public static boolean assignment_or_call() {
-    System.out.println("Entering assignment_or_call, current token: " + peekToken());
-    int savedIndex = index; // Save index for backtracking
+ public boolean assignment_or_call() {
+    enter(Rule.ASSIGNMENT_OR_CALL);
+    int mark = source.mark(); // Save position for backtracking
+    long built = treeMark();
+    long start = begin();
+    Token first = peekToken();
 
     // Try parsing as a qualified name for a method call
     if (qualified_name()) {
         Token next = peekToken();
-        System.out.println("After qualified_name, next token: " + next);
-        if (next != null && next.value.equals("(")) {
+        if (next != null && next.kind == TokenKind.LPAREN) {
+            attempt(Rule.METHOD_CALL);
             getNextToken(); // consume '('
             if (!args()) {
-                System.out.println("args failed, backtracking to index " + savedIndex);
-                index = savedIndex;
-                return false;
+                rewind(mark, Site.ASSIGNMENT_OR_CALL);
+                treeReset(built);
+                trace(Rule.METHOD_CALL, Event.BACKTRACK);
+                return exit(false);
             }
             next = getNextToken();
-            if (next == null || !next.value.equals(")")) {
+            if (next == null || next.kind != TokenKind.RPAREN) {
                 reportError(")", next);
-                index = savedIndex;
-                return false;
+                rewind(mark, Site.ASSIGNMENT_OR_CALL);
+                treeReset(built);
+                return exit(false);
             }
             next = getNextToken();
-            if (next == null || !next.value.equals(";")) {
+            if (next == null || next.kind != TokenKind.SEMICOLON) {
                 reportError(";", next);
-                index = savedIndex;
-                return false;
+                rewind(mark, Site.ASSIGNMENT_OR_CALL);
+                treeReset(built);
+                return exit(false);
             }
-            System.out.println("Successfully parsed method call");
-            return true;
+            node(NodeKind.CALL, start, first, null);
+            node(NodeKind.EXPRESSION_STATEMENT, start, first, null);
+            trace(Rule.METHOD_CALL, Event.SUCCESS);
+            source.release(mark);
+            return exit(true);
         }
-        System.out.println("No method call, backtracking to index " + savedIndex);
-        index = savedIndex; // Backtrack if not a method call
+        backtrack(mark, Site.ASSIGNMENT_OR_CALL); // Backtrack if not a method call
+        treeReset(built);
+        trace(Rule.METHOD_CALL, Event.BACKTRACK);
     }
 
     // Try parsing as an assignment
     if (Identifier(peekToken())) {
-        getNextToken(); // consume identifier
+        leaf(NodeKind.NAME, getNextToken());
         Token next = peekToken();
-        System.out.println("Trying assignment, next token: " + next);
+        attempt(Rule.ASSIGNMENT);
         if (next != null && isAssignOperator(next)) {
             getNextToken(); // consume assignment operator
             if (!expression()) {
                 reportError("expression expected after assignment operator");
-                index = savedIndex;
-                return false;
+                rewind(mark, Site.ASSIGNMENT_OR_CALL);
+                treeReset(built);
+                return exit(false);
             }
-            next = getNextToken();
-            if (next == null || !next.value.equals(";")) {
-                reportError(";", next);
-                index = savedIndex;
-                return false;
+            Token end = getNextToken();
+            if (end == null || end.kind != TokenKind.SEMICOLON) {
+                reportError(";", end);
+                rewind(mark, Site.ASSIGNMENT_OR_CALL);
+                treeReset(built);
+                return exit(false);
             }
-            System.out.println("Successfully parsed assignment");
-            return true;
+            node(NodeKind.ASSIGNMENT, start, first, next.value);
+            trace(Rule.ASSIGNMENT, Event.SUCCESS);
+            source.release(mark);
+            return exit(true);
         }
-        System.out.println("No assignment, backtracking to index " + savedIndex);
-        index = savedIndex; // Backtrack if not an assignment
+        backtrack(mark, Site.ASSIGNMENT_OR_CALL); // Backtrack if not an assignment
+        treeReset(built);
+        trace(Rule.ASSIGNMENT, Event.BACKTRACK);
     }
 
-    System.out.println("Failed assignment_or_call, backtracking to index " + savedIndex);
-    index = savedIndex;
-    return false; // Let SST handle error reporting
+    rewind(mark, Site.ASSIGNMENT_OR_CALL);
+    treeReset(built);
+    trace(Rule.ASSIGNMENT_OR_CALL, Event.BACKTRACK);
+    return exit(false); // Let SST handle error reporting
 }
-    public static boolean condition() {
+    public boolean condition() {
+        enter(Rule.CONDITION);
         // Simple condition parsing - can be expanded
-        return expression();
+        return exit(expression());
     }
 
-    public static boolean loop_body() {
+    public boolean loop_body() {
+        enter(Rule.LOOP_BODY);
         Token tok = peekToken();
-        if (tok != null && tok.value.equals(";")) {
-            getNextToken();
-            return true;
-        } else if (tok != null && tok.value.equals("{")) {
+        if (tok != null && tok.kind == TokenKind.SEMICOLON) {
+            empty();
             getNextToken();
+            return exit(true);
+        } else if (tok != null && tok.kind == TokenKind.LBRACE) {
+            long start = begin();
+            Token first = getNextToken();
             if (!MST()) {
-                return false;
+                return exit(false);
             }
-            tok = getNextToken();
-            if (tok == null || !tok.value.equals("}")) {
+            tok = peekToken();
+            if (tok == null || tok.kind != TokenKind.RBRACE) {
                 reportError("}", tok);
-                return false;
+                return exit(false);
             }
-            return true;
-        } else {
-            return SST();
-        }
-    }
-
-    public static boolean F1() {
-        if (peekToken() != null && peekToken().value.equals(";")) {
             getNextToken();
-            return true;
-        }
-        return declaration() || assignment_or_call();
-    }
-
-    public static boolean F2() {
-        if (peekToken() != null && !peekToken().value.equals(";")) {
-            return condition();
-        }
-        return true; // ε production
-    }
-
-    public static boolean F3() {
-        if (peekToken() != null && !peekToken().value.equals(")")) {
-            // Simple increment/decrement or assignment
-            return expression();
-        }
-        return true; // ε production
-    }
-
-    public static boolean expression() {
-        // Simplified expression parsing
-        return OE();
-    }
-
-    public static boolean OE() {
-        if (!AE()) {
-            return false;
-        }
-        return OE_prime();
-    }
-
-    public static boolean OE_prime() {
-        if (peekToken() != null && peekToken().value.equals("||")) {
-            getNextToken();
-            if (!AE()) {
-                reportError("expression expected after '||'");
-                return false;
-            }
-            return OE_prime();
-        }
-        return true; // ε production
-    }
-
-    public static boolean AE() {
-        if (!RE2()) {
-            return false;
+            node(NodeKind.BLOCK, start, first, null);
+            return exit(true);
+        } else {
+            return exit(SST());
         }
-        return AE_prime();
     }
 
-    public static boolean AE_prime() {
-        if (peekToken() != null && peekToken().value.equals("&&")) {
+    public boolean F1() {
+        enter(Rule.F1);
+        if (peekToken() != null && peekToken().kind == TokenKind.SEMICOLON) {
+            empty();
             getNextToken();
-            if (!RE2()) {
-                reportError("expression expected after '&&'");
-                return false;
-            }
-            return AE_prime();
+            return exit(true);
         }
-        return true; // ε production
-    }
-
-    public static boolean RE2() {
-        if (!RE1()) {
-            return false;
+        // As in SST, a data type starts a declaration and nothing else
+        if (isDataType(peekToken())) {
+            return exit(declaration());
         }
-        return RE2_prime();
-    }
-
-    public static boolean RE2_prime() {
-        if (peekToken() != null && isRelationalOperator2(peekToken())) {
+        long built = treeMark();
+        if (assignment_or_call()) {
+            return exit(true);
+        }
+        // assignment_or_call() moves back to the start and says nothing, so the error is
+        // reported here; then skip to the ';' ending the initializer, so the rest of the loop
+        // header and the body are still checked
+        reportError("declaration, assignment or call", peekToken());
+        if (!tolerate(built)) {
+            return exit(false);
+        }
+        int parens = 0;
+        Token tok;
+        while ((tok = peekToken()) != null && !isEndOfInput(tok) && tok.kind != TokenKind.LBRACE
+                && tok.kind != TokenKind.RBRACE && !(tok.kind == TokenKind.RPAREN && parens == 0)) {
             getNextToken();
-            if (!RE1()) {
-                reportError("expression expected after relational operator");
-                return false;
+            if (tok.kind == TokenKind.SEMICOLON && parens == 0) {
+                return exit(true);
             }
-            return RE2_prime();
+            parens += tok.kind == TokenKind.LPAREN ? 1 : tok.kind == TokenKind.RPAREN ? -1 : 0;
         }
-        return true; // ε production
+        return exit(false); // No ';' before the header ends; the statement's recovery takes over
     }
 
-    public static boolean RE1() {
-        if (!E()) {
-            return false;
+    public boolean F2() {
+        enter(Rule.F2);
+        if (peekToken() != null && peekToken().kind != TokenKind.SEMICOLON) {
+            return exit(condition());
         }
-        return RE1_prime();
+        empty();
+        return exit(true); // ε production
     }
 
-    public static boolean RE1_prime() {
-        if (peekToken() != null && isRelationalOperator1(peekToken())) {
-            getNextToken();
-            if (!E()) {
-                reportError("expression expected after relational operator");
-                return false;
-            }
-            return RE1_prime();
-        }
-        return true; // ε production
-    }
-
-    public static boolean E() {
-        if (!T()) {
-            return false;
+    public boolean F3() {
+        enter(Rule.F3);
+        if (peekToken() != null && peekToken().kind != TokenKind.RPAREN) {
+            // Simple increment/decrement or assignment
+            return exit(expression());
         }
-        return E_prime();
+        empty();
+        return exit(true); // ε production
     }
 
-    public static boolean E_prime() {
-        if (peekToken() != null && isPlusMinusOperator(peekToken())) {
-            getNextToken();
-            if (!T()) {
-                reportError("expression expected after '+' or '-'");
-                return false;
-            }
-            return E_prime();
-        }
-        return true; // ε production
+    // <exp> → <F> { <binary operator> <F> }, grouped by the operator table
+    public boolean expression() {
+        return memoized(MEMO_EXPRESSION, () -> {
+            enter(Rule.EXPRESSION);
+            return exit(binary_expression(LOWEST_PRECEDENCE));
+        });
     }
 
-    public static boolean T() {
+    // Precedence climbing: an operand, then every following operator that binds at least as
+    // tightly as minPrecedence, each with a right operand of the operators that bind tighter
+    // still. Operators of one level are consumed by the loop rather than by recursion, so long
+    // chains such as a + b + c + ... take constant stack depth, and an operand costs one call
+    // here plus F and primary.
+    public boolean binary_expression(int minPrecedence) {
+        enter(Rule.BINARY_EXPRESSION);
         if (!F()) {
-            return false;
+            return exit(false);
         }
-        return T_prime();
-    }
-
-    public static boolean T_prime() {
-        if (peekToken() != null && isMultDivModOperator(peekToken())) {
+        Token op;
+        while ((op = peekToken()) != null && PRECEDENCE[op.kind.ordinal()] >= minPrecedence) {
+            int precedence = PRECEDENCE[op.kind.ordinal()];
+            int at = source.position();
             getNextToken();
-            if (!F()) {
-                reportError("expression expected after '*', '/', or '%'");
-                return false;
+            if (!binary_expression(RIGHT_ASSOCIATIVE[op.kind.ordinal()] ? precedence : precedence + 1)) {
+                reportError(OPERAND_EXPECTED[op.kind.ordinal()]);
+                return exit(false);
             }
-            return T_prime();
+            binary(op, at);
         }
-        return true; // ε production
+        return exit(true);
     }
 
-    public static boolean F() {
+    public boolean F() {
+        enter(Rule.F);
         Token tok = peekToken();
         if (tok == null) {
             reportError("expression expected");
-            return false;
+            return exit(false);
         }
 
-        if (tok.value.equals("(")) {
+        if (tok.kind == TokenKind.LPAREN) {
             getNextToken();
-            if (!OE()) {
-                return false;
+            if (!binary_expression(LOWEST_PRECEDENCE)) {
+                return exit(false);
             }
-            tok = getNextToken();
-            if (tok == null || !tok.value.equals(")")) {
+            tok = peekToken();
+            if (tok == null || tok.kind != TokenKind.RPAREN) {
                 reportError(")", tok);
-                return false;
+                return exit(false);
             }
-            return true;
-        } else if (tok.value.equals("-") || tok.value.equals("!")) {
             getNextToken();
-            return F();
+            return exit(true);
+        } else if (tok.kind == TokenKind.MINUS || tok.kind == TokenKind.NOT) {
+            int at = source.position();
+            Token op = getNextToken();
+            if (!F()) {
+                return exit(false);
+            }
+            unary(op, at);
+            return exit(true);
         } else {
-            return primary();
+            return exit(primary());
         }
     }
 
-public static boolean primary() {
+public boolean primary() {
     Token tok = peekToken();
-    System.out.println("Entering primary, current token: " + tok);
+    enter(Rule.PRIMARY);
     if (tok == null) {
         reportError("primary expression expected");
-        return false;
+        return exit(false);
     }
 
     if (Identifier(tok)) {
-        int savedIndex = index; // Save index for backtracking
+        int mark = source.mark(); // Save position for backtracking
+        long built = treeMark();
+        long start = begin();
         if (qualified_name()) {
             Token next = peekToken();
-            System.out.println("After qualified_name in primary, next token: " + next);
-            if (next != null && next.value.equals("(")) {
+            if (next != null && next.kind == TokenKind.LPAREN) {
                 getNextToken(); // consume '('
                 if (!args()) {
-                    index = savedIndex;
-                    return false;
+                    rewind(mark, Site.PRIMARY);
+                    treeReset(built);
+                    return exit(false);
                 }
-                tok = getNextToken();
-                if (tok == null || !tok.value.equals(")")) {
-                    reportError(")", tok);
-                    index = savedIndex;
-                    return false;
+                Token end = getNextToken();
+                if (end == null || end.kind != TokenKind.RPAREN) {
+                    reportError(")", end);
+                    rewind(mark, Site.PRIMARY);
+                    treeReset(built);
+                    return exit(false);
                 }
+                node(NodeKind.CALL, start, tok, null);
             }
-            return true; // Valid as variable access or method call
+            source.release(mark);
+            return exit(true); // Valid as variable access or method call
         }
-        index = savedIndex;
-        return false;
+        rewind(mark, Site.PRIMARY);
+        treeReset(built);
+        return exit(false);
     } else if (isConstant(tok)) {
-        getNextToken();
-        System.out.println("Parsed constant: " + tok);
-        return true;
-    } else if (tok.value.equals("new")) {
-        return constructor_call();
+        leaf(NodeKind.LITERAL, getNextToken());
+        trace(Rule.PRIMARY, Event.SUCCESS);
+        return exit(true);
+    } else if (tok.kind == TokenKind.NEW) {
+        return exit(constructor_call());
     } else {
         reportError("identifier, constant, or 'new'", tok);
-        return false;
+        return exit(false);
     }
-}    public static boolean constructor_call() {
-        Token tok = getNextToken(); // consume 'new'
+}    public boolean constructor_call() {
+        enter(Rule.CONSTRUCTOR_CALL);
+        long start = begin();
+        Token first = getNextToken(); // consume 'new'
         
         if (!Identifier(peekToken())) {
             reportError("class name after 'new'", peekToken());
-            return false;
+            return exit(false);
         }
-        getNextToken();
+        Token name = getNextToken();
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals("(")) {
+        Token tok = getNextToken();
+        if (tok == null || tok.kind != TokenKind.LPAREN) {
             reportError("(", tok);
-            return false;
+            return exit(false);
         }
         
         if (!args()) {
-            return false;
+            return exit(false);
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(")")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RPAREN) {
             reportError(")", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
-        return true;
+        node(NodeKind.NEW, start, first, name.value);
+        return exit(true);
     }
 
-    public static boolean args() {
-        if (peekToken() != null && !peekToken().value.equals(")")) {
+    public boolean args() {
+        enter(Rule.ARGS);
+        if (peekToken() != null && peekToken().kind != TokenKind.RPAREN) {
             if (!expression()) {
-                return false;
+                return exit(false);
             }
-            return args_prime();
+            return exit(args_prime());
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
-    public static boolean args_prime() {
-        if (peekToken() != null && peekToken().value.equals(",")) {
+    public boolean args_prime() {
+        enter(Rule.ARGS_PRIME);
+        if (peekToken() != null && peekToken().kind == TokenKind.COMMA) {
             getNextToken();
-            return args();
+            return exit(args());
         }
-        return true; // ε production
+        return exit(true); // ε production
     }
 
-    public static boolean dataType() {
+    public boolean dataType() {
+        enter(Rule.DATA_TYPE);
         Token tok = peekToken();
         if (tok != null && isDataType(tok)) {
-            getNextToken();
-            return true;
+            leaf(NodeKind.TYPE, getNextToken());
+            return exit(true);
         }
         reportError("data type", tok);
-        return false;
+        return exit(false);
     }
 
     // Check if current position starts a main method
-    private static boolean isMainMethodStart() {
-        int savedIndex = index;
+    private boolean isMainMethodStart() {
+        enter(Rule.IS_MAIN_METHOD_START);
+        int mark = source.mark();
         boolean isMain = false;
         
         // Check for: public static void main
-        if (peekToken() != null && peekToken().value.equals("public")) {
+        if (peekToken() != null && peekToken().kind == TokenKind.PUBLIC) {
             getNextToken();
-            if (peekToken() != null && peekToken().value.equals("static")) {
+            if (peekToken() != null && peekToken().kind == TokenKind.STATIC) {
                 getNextToken();
-                if (peekToken() != null && peekToken().value.equals("void")) {
+                if (peekToken() != null && peekToken().kind == TokenKind.VOID) {
                     getNextToken();
-                    if (peekToken() != null && peekToken().value.equals("main")) {
+                    if (peekToken() != null && peekToken().kind == TokenKind.MAIN) {
                         isMain = true;
                     }
                 }
@@ -1234,108 +1780,163 @@ public static boolean primary() {
         }
         
         // Restore position
-        index = savedIndex;
-        return isMain;
+        rewind(mark, Site.IS_MAIN_METHOD_START);
+        return exit(isMain);
     }
 
     // <main_method> → public static void main ( String [] args ) { <method_body> }
-    public static boolean main_method() {
-        System.out.println("Entering <main_method> section");
+    public boolean main_method() {
+        enter(Rule.MAIN_METHOD);
+        long start = begin();
         
         // Parse: public static void main
-        Token tok = getNextToken();
-        if (tok == null || !tok.value.equals("public")) {
+        Token first = getNextToken();
+        Token tok = first;
+        if (tok == null || tok.kind != TokenKind.PUBLIC) {
             reportError("public", tok);
-            return false;
+            return exit(false);
         }
         
         tok = getNextToken();
-        if (tok == null || !tok.value.equals("static")) {
+        if (tok == null || tok.kind != TokenKind.STATIC) {
             reportError("static", tok);
-            return false;
+            return exit(false);
         }
         
         tok = getNextToken();
-        if (tok == null || !tok.value.equals("void")) {
+        if (tok == null || tok.kind != TokenKind.VOID) {
             reportError("void", tok);
-            return false;
+            return exit(false);
         }
         
         tok = getNextToken();
-        if (tok == null || !tok.value.equals("main")) {
+        if (tok == null || tok.kind != TokenKind.MAIN) {
             reportError("main", tok);
-            return false;
+            return exit(false);
         }
         
         // Parse: ( String [] args )
         tok = getNextToken();
-        if (tok == null || !tok.value.equals("(")) {
+        if (tok == null || tok.kind != TokenKind.LPAREN) {
             reportError("(", tok);
-            return false;
+            return exit(false);
         }
         
         // Handle both "String[] args" and "String args[]" formats
         tok = getNextToken();
-        if (tok == null || !tok.value.equals("String")) {
+        if (tok == null || tok.kind != TokenKind.STRING) {
             reportError("String", tok);
-            return false;
+            return exit(false);
         }
         
         // Check for [] before or after args
         tok = peekToken();
-        if (tok != null && tok.value.equals("[")) {
+        if (tok != null && tok.kind == TokenKind.LBRACKET) {
             getNextToken(); // consume '['
-            tok = getNextToken();
-            if (tok == null || !tok.value.equals("]")) {
+            tok = peekToken();
+            if (tok == null || tok.kind != TokenKind.RBRACKET) {
                 reportError("]", tok);
-                return false;
+                return exit(false);
             }
+            getNextToken();
             // Now expect args
             if (!Identifier(peekToken())) {
                 reportError("parameter name", peekToken());
-                return false;
+                return exit(false);
             }
-            getNextToken(); // consume args
+            leaf(NodeKind.NAME, getNextToken()); // consume args
         } else {
             // Expect args first, then []
             if (!Identifier(peekToken())) {
                 reportError("parameter name", peekToken());
-                return false;
+                return exit(false);
             }
-            getNextToken(); // consume args
+            leaf(NodeKind.NAME, getNextToken()); // consume args
             
             tok = getNextToken();
-            if (tok == null || !tok.value.equals("[")) {
+            if (tok == null || tok.kind != TokenKind.LBRACKET) {
                 reportError("[", tok);
-                return false;
+                return exit(false);
             }
             
-            tok = getNextToken();
-            if (tok == null || !tok.value.equals("]")) {
+            tok = peekToken();
+            if (tok == null || tok.kind != TokenKind.RBRACKET) {
                 reportError("]", tok);
-                return false;
+                return exit(false);
             }
+            getNextToken();
         }
         
-        tok = getNextToken();
-        if (tok == null || !tok.value.equals(")")) {
+        tok = peekToken();
+        if (tok == null || tok.kind != TokenKind.RPAREN) {
             reportError(")", tok);
-            return false;
+            return exit(false);
         }
+        getNextToken();
         
         // Parse method body: { <statements> }
-        return method_body();
+        if (!method_body()) {
+            return exit(false);
+        }
+        
+        node(NodeKind.MAIN_METHOD, start, first, null);
+        return exit(true);
+    }
+
+    // Token sets, built once; EnumSet membership is a single bit test
+    private static final EnumSet<TokenKind> MODIFIERS = EnumSet.of(
+        TokenKind.PUBLIC, TokenKind.PRIVATE, TokenKind.PROTECTED, TokenKind.STATIC, TokenKind.FINAL, TokenKind.ABSTRACT);
+    private static final EnumSet<TokenKind> DATA_TYPES = EnumSet.of(
+        TokenKind.INT, TokenKind.STRING, TokenKind.BOOLEAN, TokenKind.DOUBLE, TokenKind.FLOAT,
+        TokenKind.CHAR, TokenKind.BYTE, TokenKind.SHORT, TokenKind.LONG);
+    private static final EnumSet<TokenType> CONSTANTS = EnumSet.of(
+        TokenType.INT_CONSTANT, TokenType.FLOAT_CONSTANT, TokenType.STRING_CONSTANT, TokenType.BOOLEAN_CONSTANT);
+    private static final EnumSet<TokenKind> ASSIGN_OPERATORS = EnumSet.of(
+        TokenKind.ASSIGN, TokenKind.PLUS_ASSIGN, TokenKind.MINUS_ASSIGN,
+        TokenKind.STAR_ASSIGN, TokenKind.SLASH_ASSIGN, TokenKind.PERCENT_ASSIGN);
+    private static final EnumSet<TokenKind> RELATIONAL_OPERATORS_1 = EnumSet.of(
+        TokenKind.LT, TokenKind.GT, TokenKind.LE, TokenKind.GE);
+    private static final EnumSet<TokenKind> RELATIONAL_OPERATORS_2 = EnumSet.of(TokenKind.EQ, TokenKind.NE);
+    private static final EnumSet<TokenKind> PLUS_MINUS_OPERATORS = EnumSet.of(TokenKind.PLUS, TokenKind.MINUS);
+    private static final EnumSet<TokenKind> MULT_DIV_MOD_OPERATORS = EnumSet.of(
+        TokenKind.STAR, TokenKind.SLASH, TokenKind.PERCENT);
+    // Binary operator table by kind ordinal: precedence (0 for tokens that are not binary
+    // operators, higher binds tighter), associativity, and the error for a missing right operand
+    private static final int LOWEST_PRECEDENCE = 1;
+    private static final int[] PRECEDENCE = new int[TokenKind.values().length];
+    private static final boolean[] RIGHT_ASSOCIATIVE = new boolean[PRECEDENCE.length];
+    private static final String[] OPERAND_EXPECTED = new String[PRECEDENCE.length];
+    // FIRST(<class>) and FIRST(<SST>) by kind; identifiers are tested by category
+    private static final EnumSet<TokenKind> FIRST_CLASS = EnumSet.of(TokenKind.CLASS);
+    private static final EnumSet<TokenKind> FIRST_SST = EnumSet.of(TokenKind.IF,
+        TokenKind.WHILE, TokenKind.FOR, TokenKind.RETURN, TokenKind.TRY, TokenKind.THROW, TokenKind.LBRACE);
+
+    static {
+        FIRST_CLASS.addAll(MODIFIERS);
+        FIRST_SST.addAll(DATA_TYPES);
+        binaryOperators(1, false, "expression expected after '||'", EnumSet.of(TokenKind.OR));
+        binaryOperators(2, false, "expression expected after '&&'", EnumSet.of(TokenKind.AND));
+        binaryOperators(3, false, "expression expected after relational operator", RELATIONAL_OPERATORS_2);
+        binaryOperators(4, false, "expression expected after relational operator", RELATIONAL_OPERATORS_1);
+        binaryOperators(5, false, "expression expected after '+' or '-'", PLUS_MINUS_OPERATORS);
+        binaryOperators(6, false, "expression expected after '*', '/', or '%'", MULT_DIV_MOD_OPERATORS);
+    }
+
+    private static void binaryOperators(int precedence, boolean rightAssociative, String error, EnumSet<TokenKind> kinds) {
+        for (TokenKind kind : kinds) {
+            PRECEDENCE[kind.ordinal()] = precedence;
+            RIGHT_ASSOCIATIVE[kind.ordinal()] = rightAssociative;
+            OPERAND_EXPECTED[kind.ordinal()] = error;
+        }
     }
 
     // Helper methods for token classification
     public static boolean Identifier(Token tok) {
-        return tok != null && tok.type.equals("Identifier");
+        return tok != null && tok.category == TokenType.IDENTIFIER;
     }
 
     public static boolean isModifier(Token tok) {
-        return tok != null && (tok.value.equals("public") || tok.value.equals("private") || 
-                              tok.value.equals("protected") || tok.value.equals("static") ||
-                              tok.value.equals("final") || tok.value.equals("abstract"));
+        return tok != null && MODIFIERS.contains(tok.kind);
     }
 
     public static boolean isValidModifier(Token tok) {
@@ -1344,75 +1945,196 @@ public static boolean primary() {
     }
 
     public static boolean isDataType(Token tok) {
-        return tok != null && (tok.value.equals("int") || tok.value.equals("String") || 
-                              tok.value.equals("boolean") || tok.value.equals("double") ||
-                              tok.value.equals("float") || tok.value.equals("char") ||
-                              tok.value.equals("byte") || tok.value.equals("short") ||
-                              tok.value.equals("long")); // for custom types
+        return tok != null && DATA_TYPES.contains(tok.kind); // for custom types
     }
 
+    // Literal constants as the lexer types them, plus the true/false keywords
     public static boolean isConstant(Token tok) {
-        return tok != null && (tok.type.equals("IntConstant") || tok.type.equals("StringConstant") ||
-                              tok.type.equals("BoolConstant") || tok.type.equals("FloatConstant") ||
-                              tok.value.equals("true") || tok.value.equals("false") ||
-                              tok.value.matches("\\d+") || tok.value.matches("\".*\""));
+        return tok != null && (CONSTANTS.contains(tok.category) ||
+                              tok.kind == TokenKind.TRUE || tok.kind == TokenKind.FALSE);
     }
 
     public static boolean isAssignOperator(Token tok) {
-        return tok != null && (tok.value.equals("=") || tok.value.equals("+=") || 
-                              tok.value.equals("-=") || tok.value.equals("*=") ||
-                              tok.value.equals("/=") || tok.value.equals("%="));
+        return tok != null && ASSIGN_OPERATORS.contains(tok.kind);
     }
 
     public static boolean isRelationalOperator1(Token tok) {
-        return tok != null && (tok.value.equals("<") || tok.value.equals(">") ||
-                              tok.value.equals("<=") || tok.value.equals(">="));
+        return tok != null && RELATIONAL_OPERATORS_1.contains(tok.kind);
     }
 
     public static boolean isRelationalOperator2(Token tok) {
-        return tok != null && (tok.value.equals("==") || tok.value.equals("!="));
+        return tok != null && RELATIONAL_OPERATORS_2.contains(tok.kind);
     }
 
     public static boolean isPlusMinusOperator(Token tok) {
-        return tok != null && (tok.value.equals("+") || tok.value.equals("-"));
+        return tok != null && PLUS_MINUS_OPERATORS.contains(tok.kind);
     }
 
     public static boolean isMultDivModOperator(Token tok) {
-        return tok != null && (tok.value.equals("*") || tok.value.equals("/") || tok.value.equals("%"));
+        return tok != null && MULT_DIV_MOD_OPERATORS.contains(tok.kind);
     }
 
     // First set checks
     public static boolean First_class(Token tok) {
-        return tok != null && (isModifier(tok) || tok.value.equals("class"));
+        return tok != null && FIRST_CLASS.contains(tok.kind);
     }
 
     public static boolean First_SST(Token tok) {
         if (tok == null) return false;
         
-        return tok.value.equals("if") || tok.value.equals("while") || tok.value.equals("for") ||
-               tok.value.equals("return") || tok.value.equals("try") || tok.value.equals("throw") ||
-               isDataType(tok) || Identifier(tok) || tok.value.equals("{");
+        return FIRST_SST.contains(tok.kind) || Identifier(tok);
     }
 
-    // Helper method to get current class name (would need proper implementation)
-    private static String getCurrentClassName() {
-        // This would need to be implemented to track the current class being parsed
-        return "DefaultClass";
+    // Helper method to get current class name, or null outside of any class
+    private String getCurrentClassName() {
+        return currentClassName;
     }
 
     // Helper method to check if token represents end of input
-    private static boolean isEndOfInput(Token tok) {
+    static boolean isEndOfInput(Token tok) {
         if (tok == null) return true;
         
-        return tok.value.equals("EOF") || 
-               tok.value.equals("$") || 
-               tok.type.equals("EOF");
+        return tok.kind == TokenKind.EOF || 
+               tok.kind == TokenKind.DOLLAR || 
+               tok.category == TokenType.END_MARKER;
+    }
+
+    // Tokens straight from the lexer's packed buffer, without going through tokens.txt
+    public static TokenSource sourceOf(TokenBuffer buffer) {
+        return new RingTokenSource(batches(buffer.size(),
+            i -> Token.of(buffer.value(i), buffer.type(i), buffer.line(i))));
     }
 
-    // Main method with improved token parsing and error handling
+    // Tokens from a binary token file written by the lexer
+    public static TokenSource sourceOf(TokenFile file) {
+        return new RingTokenSource(batches(file.size(),
+            i -> Token.of(file.value(i), file.type(i), file.line(i))));
+    }
+
+    // Converts tokens a batch at a time as the parser reaches them
+    private static Supplier<Token[]> batches(int count, IntFunction<Token> token) {
+        int[] next = {0};
+        return () -> {
+            if (next[0] == count) {
+                return null;
+            }
+            Token[] batch = new Token[Math.min(BATCH, count - next[0])];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = token.apply(next[0]++);
+            }
+            return batch;
+        };
+    }
+
+    // Parses with the recursive rules, memoized if memo is set, printing the syntax tree if
+    // tree is set and counting into metrics if they are not null, or with the table-driven
+    // LL1Parser when ll1 is set; profile prints the hot rules afterwards, and name labels the
+    // parse in flight recorder events
+    private static boolean parse(String name, TokenSource source, MainClassIndex mainClasses, boolean ll1, boolean memo,
+                                 boolean tree, ParseTrace.Level trace, int maxErrors, ParseMetrics metrics,
+                                 boolean profile) {
+        if (ll1) {
+            return new LL1Parser(source).parse();
+        }
+        SyntaxAnalyzer parser = new SyntaxAnalyzer(source, mainClasses, System.out, System.err);
+        parser.setErrorBudget(maxErrors);
+        parser.setMetrics(metrics);
+        parser.setSourceName(name);
+        if (profile) {
+            parser.setProfiler(new ParseProfiler());
+        }
+        if (trace != ParseTrace.Level.OFF) {
+            parser.setTrace(new ParseTrace(trace, ParseTrace.DEFAULT_CAPACITY));
+        }
+        if (memo) {
+            parser.setMemoTable(new MemoTable());
+        }
+        if (tree) {
+            parser.setSyntaxTree(new SyntaxTree());
+        }
+        boolean result = parser.PS();
+        if (tree) {
+            SyntaxTree syntaxTree = parser.getSyntaxTree();
+            System.out.println("Syntax tree: " + syntaxTree.size() + " nodes");
+            System.out.print(syntaxTree.toString(syntaxTree.root()));
+        }
+        if (memo) {
+            MemoTable table = parser.getMemoTable();
+            System.out.println("Memo: " + table.hits() + " hits, " + table.misses() + " misses, " + table.size() + " entries");
+        }
+        if (profile) {
+            parser.getProfiler().report(System.out, ParseProfiler.DEFAULT_TOP);
+        }
+        return result;
+    }
+
+    // Main method with improved token parsing and error handling; --ll1 selects the table-driven
+    // parser, --memo turns on memoization in the recursive one, --trace or --trace-detail keep
+    // the last rule events to print if parsing fails, --max-errors=N reports up to N errors,
+    // --tree prints the syntax tree, and --metrics=FILE writes token load time, rule calls and
+    // backtracking to FILE, as JSON if its name ends in .json and as Prometheus text otherwise,
+    // and --profile times every rule and prints the hot rules and the lines parsed again the most
     public static void main(String[] args) throws IOException {
-        String fileName = args.length > 0 ? args[0] : "tokens.txt";
-        
+        boolean ll1 = false;
+        boolean memo = false;
+        boolean tree = false;
+        ParseTrace.Level trace = ParseTrace.Level.OFF;
+        int maxErrors = 1;
+        boolean profile = false;
+        Path metricsPath = null;
+        String fileName = "tokens.bin";
+        for (String arg : args) {
+            if (arg.equals("--ll1")) {
+                ll1 = true;
+            } else if (arg.equals("--memo")) {
+                memo = true;
+            } else if (arg.equals("--tree")) {
+                tree = true;
+            } else if (arg.equals("--trace")) {
+                trace = ParseTrace.Level.RULES;
+            } else if (arg.equals("--trace-detail")) {
+                trace = ParseTrace.Level.DETAIL;
+            } else if (arg.startsWith("--max-errors=")) {
+                maxErrors = Math.max(1, Integer.parseInt(arg.substring("--max-errors=".length())));
+            } else if (arg.equals("--profile")) {
+                profile = true;
+            } else if (arg.startsWith("--metrics=")) {
+                metricsPath = Paths.get(arg.substring("--metrics=".length()));
+            } else {
+                fileName = arg;
+            }
+        }
+        Path path = Paths.get(fileName);
+        ParseMetrics metrics = metricsPath != null ? new ParseMetrics() : null;
+        long loadStarted = System.nanoTime();
+        ParserEvents.LoadTokens load = new ParserEvents.LoadTokens();
+        load.begin();
+
+        // Binary token files are mapped and decoded directly; anything else is read as <line,type,value> text
+        try {
+            if (TokenFile.isTokenFile(path)) {
+                TokenFile file = TokenFile.read(path);
+                if (metrics != null) {
+                    metrics.addLoad(file.size(), System.nanoTime() - loadStarted);
+                }
+                loaded(load, path, "binary", file.size(), "success");
+                System.out.println("\n=== Starting Syntax Analysis ===");
+                System.out.println("Total tokens loaded: " + file.size());
+
+                boolean result = parse(fileName, sourceOf(file), MainClassIndex.of(file.size(), file::value), ll1, memo, tree, trace, maxErrors, metrics, profile);
+                if (!result) {
+                    System.err.println("PARSING FAILED!");
+                }
+                writeMetrics(metrics, metricsPath);
+                return;
+            }
+        } catch (IOException e) {
+            loaded(load, path, "binary", 0, e.toString());
+            System.err.println("Error reading file: " + fileName + " (" + e.getMessage() + ")");
+            return;
+        }
+
+        List<Token> tokens = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
             String line;
             int lineCount = 0;
@@ -1431,13 +2153,12 @@ public static boolean primary() {
                         String[] parts = line.split(",", 3); // Split into max 3 parts
                         
                         if (parts.length >= 3) {
-                            String lineNum = parts[0].trim();
+                            int lineNum = Integer.parseInt(parts[0].trim());
                             String type = parts[1].trim();
                             String value = parts[2].trim();
                             
                             Token t = new Token(value, type, lineNum);
                             tokens.add(t);
-                            System.out.println("Loaded token: " + t.value + " (" + t.type + ") at line " + t.line);
                         } else {
                             System.err.println("Skipping malformed line " + lineCount + ": " + line);
                         }
@@ -1451,37 +2172,94 @@ public static boolean primary() {
             
             // Add EOF token if not present
             if (tokens.isEmpty() || !isEndOfInput(tokens.get(tokens.size()-1))) {
-                tokens.add(new Token("EOF", "EOF", "-1"));
+                tokens.add(new Token("EOF", "EOF", -1));
             }
-            
+            if (metrics != null) {
+                metrics.addLoad(tokens.size(), System.nanoTime() - loadStarted);
+            }
+            loaded(load, path, "text", tokens.size(), "success");
             System.out.println("\n=== Starting Syntax Analysis ===");
             System.out.println("Total tokens loaded: " + tokens.size());
             
-            boolean result = PS();
+            boolean result = parse(fileName, new RingTokenSource(batches(tokens.size(), tokens::get)),
+                MainClassIndex.of(tokens.size(), i -> tokens.get(i).value), ll1, memo, tree, trace, maxErrors, metrics, profile);
             if (!result) {
                 System.err.println("PARSING FAILED!");
             }
-            
+            writeMetrics(metrics, metricsPath);
+
         } catch (IOException e) {
+            loaded(load, path, "text", tokens.size(), e.toString());
             System.err.println("Error reading file: " + fileName + " (" + e.getMessage() + ")");
         }
     }
 
+    // Fills in and commits a LoadTokens event, if it is enabled and not committed yet
+    private static void loaded(ParserEvents.LoadTokens event, Path path, String format, int tokens, String outcome) {
+        if (event.shouldCommit() && event.outcome == null) {
+            event.file = path.toString();
+            event.format = format;
+            try {
+                event.bytes = Files.size(path);
+            } catch (IOException e) {
+                event.bytes = -1;
+            }
+            event.tokens = tokens;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    // Writes the metrics to a file, if they were kept
+    private static void writeMetrics(ParseMetrics metrics, Path path) throws IOException {
+        if (metrics != null) {
+            MetricsWriter out = new MetricsWriter(MetricsWriter.Format.of(path));
+            metrics.export(out);
+            out.write(path);
+        }
+    }
+
     // Token class
     public static class Token {
-        public String value;
-        public String type;
-        public String line;
+        private static final Map<String, TokenType> TYPES_BY_NAME = new HashMap<>();
+
+        static {
+            for (TokenType type : TokenType.values()) {
+                TYPES_BY_NAME.put(Lexer.tokenTypeToString(type), type);
+            }
+        }
+
+        public final String value;
+        public final String type;
+        public final int line;
+        // Classified once here, so rules test kinds instead of comparing strings
+        public final TokenKind kind;
+        public final TokenType category;
 
-        public Token(String value, String type, String line) {
+        public Token(String value, String type, int line) {
+            this(value, type, TYPES_BY_NAME.getOrDefault(type, TokenType.INVALID), line);
+        }
+
+        private Token(String value, String type, TokenType category, int line) {
             this.value = value;
             this.type = type;
             this.line = line;
+            this.kind = TokenKind.of(value);
+            this.category = category;
+        }
+
+        // Converts a lexer token, naming its type the way the grammar rules expect
+        public static Token from(LEXER.Token token) {
+            return new Token(token.getValue(), Lexer.tokenTypeToString(token.getType()), token.getType(), token.getLine());
+        }
+
+        static Token of(String value, TokenType type, int line) {
+            return new Token(value, Lexer.tokenTypeToString(type), type, line);
         }
 
         @Override
         public String toString() {
-            return "Token{" + "value='" + value + '\'' + ", type='" + type + '\'' + ", line='" + line + '\'' + '}';
+            return "Token{" + "value='" + value + '\'' + ", type='" + type + '\'' + ", line=" + line + '}';
         }
     }
 }
\ No newline at end of file
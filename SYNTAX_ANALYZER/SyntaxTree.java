@@ -0,0 +1,431 @@
+package SYNTAX_ANALYZER;
+
+import java.util.Arrays;
+
+/**
+ * Abstract syntax tree stored in an arena of parallel arrays rather than one object per node.
+ * A node is an int index; its kind, first child, next sibling, parent, token position and line
+ * are array entries, and its text is a reference to the token's existing String. NodeKind
+ * documents the children of each kind.
+ *
+ * The parser builds the tree bottom-up: finished nodes wait on a pending stack until the node
+ * that contains them is closed and adopts them. A node is therefore always created after its
+ * children, so indexes 0 to size() - 1 are a post-order of the tree, and backtracking undoes
+ * everything built since a mark by truncating the arrays.
+ */
+public final class SyntaxTree {
+    /** Index meaning "no node". */
+    public static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+    private int[] nextSibling = new int[INITIAL_CAPACITY];
+    private int[] parent = new int[INITIAL_CAPACITY];
+    private int[] tokens = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private int size;
+    // Finished nodes not yet adopted by a parent, oldest first.
+    private int[] pending = new int[64];
+    private int pendingSize;
+    private int root = NONE;
+
+    /**
+     * Visits nodes during walk().
+     */
+    public interface Visitor {
+        /**
+         * Called before a node's children.
+         * @param tree The tree.
+         * @param node The node.
+         * @return False to skip the node's children.
+         */
+        boolean enter(SyntaxTree tree, int node);
+
+        /**
+         * Called after a node's children, or right after enter() if they were skipped.
+         * @param tree The tree.
+         * @param node The node.
+         */
+        default void exit(SyntaxTree tree, int node) {
+        }
+    }
+
+    /**
+     * Removes every node, keeping the arrays for the next parse.
+     */
+    public void clear() {
+        pendingSize = 0;
+        root = NONE;
+        Arrays.fill(texts, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Shrinks the arrays to the nodes in use, for trees kept after parsing.
+     */
+    public void trim() {
+        int capacity = Math.max(size, 1);
+        kinds = Arrays.copyOf(kinds, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        pending = new int[1];
+        pendingSize = 0;
+    }
+
+    // Building, used by the parser
+
+    // Saves the build state; reset() with the result discards everything built since
+    long mark() {
+        return (long) size << 32 | pendingSize;
+    }
+
+    void reset(long mark) {
+        int oldSize = (int) (mark >>> 32);
+        Arrays.fill(texts, oldSize, size, null);
+        size = oldSize;
+        pendingSize = (int) mark;
+    }
+
+    // Number of pending nodes; a node closed at this height adopts everything pushed after
+    int height() {
+        return pendingSize;
+    }
+
+    // Adds a node without children to the pending stack
+    void leaf(NodeKind kind, int token, int line, String text) {
+        push(add(kind, token, line, text));
+    }
+
+    // Adds a node adopting the pending nodes above a height as its children, in order
+    void close(NodeKind kind, int height, int token, int line, String text) {
+        int node = add(kind, token, line, text);
+        int previous = NONE;
+        for (int i = height; i < pendingSize; i++) {
+            int child = pending[i];
+            parent[child] = node;
+            nextSibling[child] = NONE;
+            if (previous == NONE) {
+                firstChild[node] = child;
+            } else {
+                nextSibling[previous] = child;
+            }
+            previous = child;
+        }
+        pendingSize = height;
+        push(node);
+    }
+
+    // Makes the only pending node the root
+    void finish() {
+        root = pendingSize == 1 ? pending[0] : NONE;
+        if (root != NONE) {
+            parent[root] = NONE;
+            nextSibling[root] = NONE;
+        }
+    }
+
+    private int add(NodeKind kind, int token, int line, String text) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        int node = size++;
+        kinds[node] = (byte) kind.ordinal();
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        parent[node] = NONE;
+        tokens[node] = token;
+        lines[node] = line;
+        texts[node] = text;
+        return node;
+    }
+
+    private void push(int node) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        pending[pendingSize++] = node;
+    }
+
+    // Reading
+
+    /**
+     * Gets the root of a completed parse.
+     * @return The PROGRAM node, or NONE if the parse did not complete.
+     */
+    public int root() {
+        return root;
+    }
+
+    /**
+     * Gets the number of nodes. Every index below it is a node, in post-order.
+     * @return The node count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the kind of a node.
+     * @param node The node.
+     * @return The node kind.
+     */
+    public NodeKind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    /**
+     * Gets the first child of a node.
+     * @param node The node.
+     * @return The first child, or NONE for a node without children.
+     */
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    /**
+     * Gets the next child of the same parent.
+     * @param node The node.
+     * @return The next sibling, or NONE for the last child.
+     */
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * Gets the parent of a node.
+     * @param node The node.
+     * @return The parent, or NONE for the root.
+     */
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Gets a child by position.
+     * @param node The node.
+     * @param index The child position, from 0.
+     * @return The child, or NONE if the node has fewer children.
+     */
+    public int child(int node, int index) {
+        int child = firstChild[node];
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = nextSibling[child];
+        }
+        return child;
+    }
+
+    /**
+     * Counts the children of a node.
+     * @param node The node.
+     * @return The number of children.
+     */
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the first child of a kind.
+     * @param node The node.
+     * @param kind The kind to look for.
+     * @return The child, or NONE if there is none.
+     */
+    public int childOf(int node, NodeKind kind) {
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (kinds[child] == kind.ordinal()) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Gets the position of the token a node starts at, as the TokenSource numbered it.
+     * @param node The node.
+     * @return The token index.
+     */
+    public int token(int node) {
+        return tokens[node];
+    }
+
+    /**
+     * Gets the line a node starts on.
+     * @param node The node.
+     * @return The line number, or -1 if unknown.
+     */
+    public int line(int node) {
+        return lines[node];
+    }
+
+    /**
+     * Gets the text of a node: the token for a leaf, the operator of BINARY, UNARY and
+     * ASSIGNMENT, the class name of NEW.
+     * @param node The node.
+     * @return The text, or null for other nodes.
+     */
+    public String text(int node) {
+        return texts[node];
+    }
+
+    /**
+     * Walks the subtree of a node depth-first, children in order, with an explicit stack.
+     * @param node The node to start at.
+     * @param visitor The visitor.
+     */
+    public void walk(int node, Visitor visitor) {
+        if (node == NONE) {
+            return;
+        }
+        int[] stack = new int[32];
+        int depth = 0;
+        // Each entry is a node; a negative entry ~n marks that n's children are done.
+        stack[depth++] = node;
+        while (depth > 0) {
+            int top = stack[--depth];
+            if (top < 0) {
+                visitor.exit(this, ~top);
+                continue;
+            }
+            boolean descend = visitor.enter(this, top);
+            int children = descend ? childCount(top) : 0;
+            if (depth + children + 1 > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, depth + children + 1));
+            }
+            stack[depth++] = ~top;
+            // Push children last to first so the first is visited first.
+            depth += children;
+            int slot = depth - 1;
+            for (int child = firstChild[top]; descend && child != NONE; child = nextSibling[child]) {
+                stack[slot--] = child;
+            }
+        }
+    }
+
+    /**
+     * Gets a view of a node, for callers that prefer objects to indexes. Views are created on
+     * demand and hold nothing but the index.
+     * @param node The node.
+     * @return The view, or null for NONE.
+     */
+    public Node node(int node) {
+        return node == NONE ? null : new Node(node);
+    }
+
+    /**
+     * A node of this tree seen as an object; the accessors match the tree's index-based ones.
+     */
+    public final class Node {
+        private final int index;
+
+        private Node(int index) {
+            this.index = index;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public NodeKind kind() {
+            return SyntaxTree.this.kind(index);
+        }
+
+        public String text() {
+            return texts[index];
+        }
+
+        public int token() {
+            return tokens[index];
+        }
+
+        public int line() {
+            return lines[index];
+        }
+
+        public Node parent() {
+            return node(parent[index]);
+        }
+
+        public Node firstChild() {
+            return node(firstChild[index]);
+        }
+
+        public Node nextSibling() {
+            return node(nextSibling[index]);
+        }
+
+        public Node child(int n) {
+            return node(SyntaxTree.this.child(index, n));
+        }
+
+        public int childCount() {
+            return SyntaxTree.this.childCount(index);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node && ((Node) o).index == index && ((Node) o).tree() == SyntaxTree.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return kind() + (texts[index] != null ? " " + texts[index] : "") + " @" + index;
+        }
+
+        private SyntaxTree tree() {
+            return SyntaxTree.this;
+        }
+    }
+
+    /**
+     * Formats a subtree, one node per line, indented by depth, for debugging.
+     * @param node The node to start at.
+     * @return The text.
+     */
+    public String toString(int node) {
+        StringBuilder sb = new StringBuilder();
+        int[] depth = {0};
+        walk(node, new Visitor() {
+            @Override
+            public boolean enter(SyntaxTree tree, int n) {
+                for (int i = 0; i < depth[0]; i++) {
+                    sb.append("  ");
+                }
+                sb.append(kind(n));
+                if (texts[n] != null) {
+                    sb.append(' ').append(texts[n]);
+                }
+                sb.append('\n');
+                depth[0]++;
+                return true;
+            }
+
+            @Override
+            public void exit(SyntaxTree tree, int n) {
+                depth[0]--;
+            }
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package SYNTAX_ANALYZER;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Terminal spellings the grammar rules test for, so a token's value is classified once
+ * when the token is created instead of being compared as a String in every rule.
+ * Every other value is OTHER; what kind of token it is then comes from its category.
+ */
+public enum TokenKind {
+    // Punctuation
+    LPAREN("("), RPAREN(")"), LBRACE("{"), RBRACE("}"), LBRACKET("["), RBRACKET("]"),
+    SEMICOLON(";"), COMMA(","), DOT("."), DOLLAR("$"),
+    // Operators
+    ASSIGN("="), PLUS_ASSIGN("+="), MINUS_ASSIGN("-="), STAR_ASSIGN("*="), SLASH_ASSIGN("/="), PERCENT_ASSIGN("%="),
+    OR("||"), AND("&&"), EQ("=="), NE("!="), LT("<"), GT(">"), LE("<="), GE(">="),
+    PLUS("+"), MINUS("-"), STAR("*"), SLASH("/"), PERCENT("%"), NOT("!"),
+    // Words, including names the lexer reports as identifiers
+    IMPORT("import"), CLASS("class"), EXTENDS("extends"), NEW("new"),
+    PUBLIC("public"), PRIVATE("private"), PROTECTED("protected"), STATIC("static"), FINAL("final"), ABSTRACT("abstract"),
+    VOID("void"), INT("int"), STRING("String"), BOOLEAN("boolean"), DOUBLE("double"), FLOAT("float"),
+    CHAR("char"), BYTE("byte"), SHORT("short"), LONG("long"),
+    IF("if"), ELSE("else"), WHILE("while"), FOR("for"), RETURN("return"), TRY("try"), THROW("throw"),
+    TRUE("true"), FALSE("false"), MAIN("main"),
+    EOF("EOF"),
+    OTHER(null);
+
+    private static final Map<String, TokenKind> BY_SPELLING = new HashMap<>();
+
+    static {
+        for (TokenKind kind : values()) {
+            if (kind.spelling != null) {
+                BY_SPELLING.put(kind.spelling, kind);
+            }
+        }
+    }
+
+    private final String spelling;
+
+    TokenKind(String spelling) {
+        this.spelling = spelling;
+    }
+
+    // Exact source text of the terminal, or null for OTHER
+    public String spelling() {
+        return spelling;
+    }
+
+    // Kind of a token value; OTHER unless it is one of the spellings above
+    public static TokenKind of(String value) {
+        return BY_SPELLING.getOrDefault(value, OTHER);
+    }
+}
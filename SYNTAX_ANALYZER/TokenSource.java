@@ -0,0 +1,56 @@
+package SYNTAX_ANALYZER;
+
+import SYNTAX_ANALYZER.SyntaxAnalyzer.Token;
+
+/**
+ * Pull-based stream of tokens for the parser, with lookahead and backtracking.
+ * Positions are absolute token indexes. A mark keeps its position and everything after
+ * it reachable until it is released; tokens before the oldest open mark and the current
+ * position may be discarded.
+ */
+public interface TokenSource {
+    /**
+     * Returns the current token and advances past it.
+     * @return The token, or null past the end of input.
+     */
+    Token next();
+
+    /**
+     * Returns a token ahead of the current position without consuming anything.
+     * @param k The distance from the current position; 0 is the current token.
+     * @return The token, or null past the end of input.
+     */
+    Token peek(int k);
+
+    /**
+     * Gets the current position.
+     * @return The absolute index of the current token.
+     */
+    int position();
+
+    /**
+     * Opens a mark at the current position.
+     * @return The mark, which is the current position.
+     */
+    int mark();
+
+    /**
+     * Moves back to an open mark. The mark stays open.
+     * @param mark A mark returned by mark() and not yet released.
+     * @throws IllegalStateException If the mark has been released.
+     */
+    void reset(int mark);
+
+    /**
+     * Moves forward to a position that has already been read, without reading the tokens again.
+     * @param position A position from the current one up to the furthest token peeked at.
+     * @throws IllegalStateException If the position is no longer or not yet buffered.
+     */
+    void skipTo(int position);
+
+    /**
+     * Closes a mark, allowing the tokens it kept reachable to be discarded.
+     * @param mark A mark returned by mark() and not yet released.
+     */
+    void release(int mark);
+}